@@ -0,0 +1,135 @@
+package com.mct.bubblechat;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide, memory-bounded cache of avatar bitmaps.<br/>
+ * Avatars are decoded at the exact size of the bubble and shared by every bubble that
+ * shows the same contact at that size.
+ * INFO: The cache must be used from the main thread, {@link #decode} is thread-safe.
+ */
+final class AvatarCache {
+
+    /**
+     * Part of the heap given to avatars (1/n)
+     */
+    private static final int MEMORY_FRACTION = 16;
+
+    /**
+     * Shared instance
+     */
+    private static AvatarCache sInstance;
+
+    /**
+     * Bitmaps by contact and size, weighed in kilobytes
+     */
+    private final LruCache<String, Bitmap> mBitmaps;
+
+    AvatarCache(int maxKiloBytes) {
+        mBitmaps = new LruCache<String, Bitmap>(maxKiloBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return Math.max(1, value.getAllocationByteCount() / 1024);
+            }
+        };
+    }
+
+    @NonNull
+    static AvatarCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new AvatarCache((int) (Runtime.getRuntime().maxMemory() / 1024 / MEMORY_FRACTION));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Find a decoded avatar.
+     *
+     * @param cacheKey {@link #cacheKey(String, int, int, int)}
+     * @return avatar, or null if not cached
+     */
+    @Nullable
+    Bitmap get(@NonNull String cacheKey) {
+        return mBitmaps.get(cacheKey);
+    }
+
+    void put(@NonNull String cacheKey, @NonNull Bitmap avatar) {
+        mBitmaps.put(cacheKey, avatar);
+    }
+
+    /**
+     * Key of an avatar: the contact (or the resource) and the size.
+     */
+    @NonNull
+    static String cacheKey(@Nullable String key, @DrawableRes int resId, int width, int height) {
+        return (key != null ? key : "res:" + resId) + '@' + width + 'x' + height;
+    }
+
+    /**
+     * Decode a resource downsampled to the requested size.
+     * Non-bitmap resources (vectors, shapes) are drawn at that size.
+     */
+    @Nullable
+    static Bitmap decode(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(res, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return rasterize(res, resId, width, height);
+        }
+        final int targetWidth = width > 0 ? width : options.outWidth;
+        final int targetHeight = height > 0 ? height : options.outHeight;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        final Bitmap decoded = BitmapFactory.decodeResource(res, resId, options);
+        if (decoded == null) {
+            return null;
+        }
+        if (decoded.getWidth() == targetWidth && decoded.getHeight() == targetHeight) {
+            return decoded;
+        }
+        final Bitmap scaled = Bitmap.createScaledBitmap(decoded, targetWidth, targetHeight, true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Largest power of two that keeps the decoded image at least as large as the target.
+     */
+    static int calculateInSampleSize(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= dstWidth && srcHeight / (sampleSize * 2) >= dstHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    @Nullable
+    private static Bitmap rasterize(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        final Drawable drawable = res.getDrawable(resId, null);
+        if (drawable == null) {
+            return null;
+        }
+        final int targetWidth = width > 0 ? width : drawable.getIntrinsicWidth();
+        final int targetHeight = height > 0 ? height : drawable.getIntrinsicHeight();
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return null;
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, targetWidth, targetHeight);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+}
@@ -0,0 +1,224 @@
+package com.mct.bubblechat;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.Process;
+import android.view.Choreographer;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes and crops avatars off the main thread.<br/>
+ * Requests for an avatar that is already being decoded wait for the same decode.
+ * A callback has at most one pending request: a new load or {@link #cancel} drops the previous one,
+ * so a stale decode never reaches a removed bubble or replaces a newer avatar.
+ * Results are handed to the main thread in a frame callback, so a burst of decodes
+ * lands in as few frames as possible.
+ * INFO: {@link #load} must be called from the main thread.
+ */
+final class AvatarLoader implements Choreographer.FrameCallback {
+
+    /**
+     * Maximum number of concurrent decodes
+     */
+    private static final int MAX_DECODE_THREADS = 2;
+
+    /**
+     * Idle decode threads die after this time
+     */
+    private static final long KEEP_ALIVE_SECONDS = 5L;
+
+    /**
+     * Shared instance
+     */
+    private static AvatarLoader sInstance;
+
+    /**
+     * Receives a loaded avatar on the main thread.
+     */
+    interface Callback {
+        void onAvatarLoaded(@NonNull Bitmap avatar);
+    }
+
+    /**
+     * Decoded avatars
+     */
+    private final AvatarCache mCache;
+
+    /**
+     * Decode threads
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Choreographer of the main thread
+     */
+    private final Choreographer mChoreographer;
+
+    /**
+     * Callbacks waiting for a decode, by cache key (main thread).
+     * A list may be empty: the decode is still cached when all its requests were cancelled
+     */
+    private final Map<String, ArrayList<Callback>> mInFlight;
+
+    /**
+     * Finished decodes waiting for the next frame, keys and bitmaps (guarded by itself)
+     */
+    private final ArrayList<Object> mResults;
+
+    /**
+     * True if a frame callback has been posted (guarded by mResults)
+     */
+    private boolean mIsScheduled;
+
+    AvatarLoader(@NonNull AvatarCache cache, @NonNull Executor executor) {
+        mCache = cache;
+        mExecutor = executor;
+        mChoreographer = Choreographer.getInstance();
+        mInFlight = new HashMap<>();
+        mResults = new ArrayList<>();
+    }
+
+    @NonNull
+    static AvatarLoader getInstance() {
+        if (sInstance == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_DECODE_THREADS, MAX_DECODE_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "BubbleAvatar"));
+            executor.allowCoreThreadTimeOut(true);
+            sInstance = new AvatarLoader(AvatarCache.getInstance(), executor);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Load an avatar, cropped to a circle.
+     * A cached avatar is delivered synchronously, otherwise on a later frame.
+     *
+     * @param res      resources
+     * @param key      contact key, null to share by resource
+     * @param resId    drawable resource
+     * @param width    width (px), not positive to keep the image width
+     * @param height   height (px), not positive to keep the image height
+     * @param callback receives the avatar (not called if the resource cannot be drawn or on {@link #cancel})
+     */
+    void load(@NonNull Resources res, @Nullable String key, @DrawableRes int resId,
+              int width, int height, @NonNull Callback callback) {
+        cancel(callback);
+        final String cacheKey = AvatarCache.cacheKey(key, resId, width, height);
+        final Bitmap cached = mCache.get(cacheKey);
+        if (cached != null) {
+            callback.onAvatarLoaded(cached);
+            return;
+        }
+        ArrayList<Callback> callbacks = mInFlight.get(cacheKey);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>(1);
+        callbacks.add(callback);
+        mInFlight.put(cacheKey, callbacks);
+        mExecutor.execute(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Bitmap avatar;
+            try {
+                final Bitmap decoded = AvatarCache.decode(res, resId, width, height);
+                avatar = decoded != null ? cropCircle(decoded) : null;
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // Missing or corrupt resource, or no memory: keep the placeholder, but still end the request
+                avatar = null;
+            }
+            publish(cacheKey, avatar);
+        });
+    }
+
+    /**
+     * Drop the pending request of a callback, the decode itself goes on and is cached.
+     *
+     * @param callback callback given to {@link #load}
+     */
+    void cancel(@NonNull Callback callback) {
+        for (ArrayList<Callback> callbacks : mInFlight.values()) {
+            if (callbacks.remove(callback)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cancel the pending request of a callback, without creating the loader if it was never used.
+     *
+     * @param callback callback given to {@link #load}
+     */
+    static void cancelPending(@NonNull Callback callback) {
+        if (sInstance != null) {
+            sInstance.cancel(callback);
+        }
+    }
+
+    /**
+     * Hand a decode to the main thread on the next frame (any thread).
+     */
+    private void publish(@NonNull String cacheKey, @Nullable Bitmap avatar) {
+        synchronized (mResults) {
+            mResults.add(cacheKey);
+            mResults.add(avatar);
+            if (!mIsScheduled) {
+                mIsScheduled = true;
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        final Object[] results;
+        synchronized (mResults) {
+            mIsScheduled = false;
+            results = mResults.toArray();
+            mResults.clear();
+        }
+        for (int i = 0; i < results.length; i += 2) {
+            final String cacheKey = (String) results[i];
+            final Bitmap avatar = (Bitmap) results[i + 1];
+            final ArrayList<Callback> callbacks = mInFlight.remove(cacheKey);
+            if (avatar == null || callbacks == null) {
+                continue;
+            }
+            mCache.put(cacheKey, avatar);
+            for (int j = 0; j < callbacks.size(); j++) {
+                callbacks.get(j).onAvatarLoaded(avatar);
+            }
+        }
+    }
+
+    /**
+     * Crop a bitmap to the circle inscribed in it. The source is recycled.
+     */
+    @NonNull
+    static Bitmap cropCircle(@NonNull Bitmap source) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final Bitmap output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        new Canvas(output).drawCircle(width / 2f, height / 2f, Math.min(width, height) / 2f, paint);
+        source.recycle();
+        return output;
+    }
+}
@@ -0,0 +1,160 @@
+package com.mct.bubblechat;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Unread count drawn over a bubble.<br/>
+ * The label and its width are computed once per count change, drawing does not allocate.
+ * A change only invalidates the badge's own bounds: it never requests a layout or
+ * touches the window's LayoutParams.
+ * INFO: Must be used from the main thread.
+ */
+final class BadgeDrawable extends Drawable {
+
+    /**
+     * Largest count shown as a number, larger counts are shown as "99+"
+     */
+    static final int MAX_COUNT = 99;
+
+    /**
+     * Labels of 1..MAX_COUNT, created on first use
+     */
+    private static final String[] LABELS = new String[MAX_COUNT + 1];
+
+    private static final String OVERFLOW_LABEL = MAX_COUNT + "+";
+
+    private final Paint mCirclePaint;
+    private final Paint mTextPaint;
+
+    /**
+     * Unread count, 0 hides the badge
+     */
+    private int mCount;
+
+    /**
+     * Label of mCount and its baseline offset from the center
+     */
+    private String mLabel;
+    private float mLabelWidth;
+    private final float mBaselineOffset;
+
+    /**
+     * Radius of the badge (height / 2)
+     */
+    private final float mRadius;
+
+    /**
+     * Width of the widest badge ("99+"), the bounds never change with the count
+     */
+    private final int mMaxWidth;
+
+    /**
+     * @param radius   radius of the badge (px)
+     * @param textSize size of the count (px)
+     * @param color    background color
+     */
+    BadgeDrawable(float radius, float textSize, int color) {
+        mRadius = radius;
+        mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mCirclePaint.setColor(color);
+        mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setColor(0xFFFFFFFF);
+        mTextPaint.setTextSize(textSize);
+        mTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        final Paint.FontMetrics metrics = mTextPaint.getFontMetrics();
+        mBaselineOffset = -(metrics.ascent + metrics.descent) / 2f;
+        mMaxWidth = (int) Math.ceil(getBadgeWidth(mTextPaint.measureText(OVERFLOW_LABEL)));
+    }
+
+    /**
+     * Set the unread count.
+     *
+     * @param count count, 0 to hide
+     * @return true if the badge changed
+     */
+    boolean setCount(int count) {
+        count = Math.max(0, count);
+        if (count == mCount) {
+            return false;
+        }
+        mCount = count;
+        mLabel = count == 0 ? null : getLabel(count);
+        mLabelWidth = mLabel != null ? mTextPaint.measureText(mLabel) : 0;
+        invalidateSelf();
+        return true;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Place the badge in the top right corner of a bubble.
+     *
+     * @param width  width of the bubble
+     * @param height height of the bubble
+     */
+    void layout(int width, int height) {
+        final int diameter = (int) Math.ceil(mRadius * 2);
+        setBounds(Math.max(0, width - mMaxWidth), 0, width, Math.min(height, diameter));
+    }
+
+    /**
+     * A circle for short labels, a pill for wide ones.
+     */
+    private float getBadgeWidth(float labelWidth) {
+        return Math.max(mRadius * 2, labelWidth + mRadius);
+    }
+
+    @NonNull
+    private static String getLabel(int count) {
+        if (count > MAX_COUNT) {
+            return OVERFLOW_LABEL;
+        }
+        if (LABELS[count] == null) {
+            LABELS[count] = String.valueOf(count);
+        }
+        return LABELS[count];
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mLabel == null) {
+            return;
+        }
+        // right aligned, so every badge stays inside the bounds
+        final Rect bounds = getBounds();
+        final float right = bounds.right;
+        final float left = right - getBadgeWidth(mLabelWidth);
+        final float cy = bounds.exactCenterY();
+        canvas.drawRoundRect(left, cy - mRadius, right, cy + mRadius, mRadius, mRadius, mCirclePaint);
+        canvas.drawText(mLabel, (left + right - mLabelWidth) / 2f, cy + mBaselineOffset, mTextPaint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mCirclePaint.setAlpha(alpha);
+        mTextPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mCirclePaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -2,7 +2,6 @@ package com.mct.bubblechat;
 
 import android.content.Context;
 import android.util.AttributeSet;
-import android.util.Property;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
@@ -16,6 +15,11 @@ class BubbleBaseLayout extends FrameLayout {
     private WindowManager windowManager;
     private WindowManager.LayoutParams params;
     private boolean isAttach;
+    private boolean isLayoutDirty;
+    private int commitPass;
+    private boolean isRefreshRateDirty;
+    private BubbleWindowHost windowHost;
+    private GestureTracker gestureTracker;
 
     WindowManager getWindowManager() {
         if (windowManager == null) {
@@ -32,32 +36,133 @@ class BubbleBaseLayout extends FrameLayout {
         return this.params;
     }
 
+    /**
+     * Draw this layout inside a shared host window instead of its own window.
+     *
+     * @param host host window, or null to use an own window
+     */
+    void setWindowHost(BubbleWindowHost host) {
+        this.windowHost = host;
+    }
+
+    /**
+     * Report WindowManager updates of this window to a gesture tracker.
+     *
+     * @param tracker tracker, or null to stop reporting
+     */
+    void setGestureTracker(GestureTracker tracker) {
+        this.gestureTracker = tracker;
+    }
+
     public void updateLayoutParams() {
         synchronized (lock) {
             if (isAttach) {
-                getWindowManager().updateViewLayout(this, getViewParams());
+                if (windowHost != null) {
+                    windowHost.requestUpdateLayoutParams();
+                } else if (gestureTracker != null && gestureTracker.isTracking()) {
+                    final long start = System.nanoTime();
+                    getWindowManager().updateViewLayout(this, getViewParams());
+                    gestureTracker.onWindowUpdate(System.nanoTime() - start);
+                } else {
+                    getWindowManager().updateViewLayout(this, getViewParams());
+                }
             }
         }
     }
 
+    /**
+     * Commit the LayoutParams on the next frame.
+     * Multiple requests within a frame result in a single WindowManager update.
+     */
+    void requestUpdateLayoutParams() {
+        LayoutCommitter.getInstance().schedule(this);
+    }
+
+    /**
+     * Vote for a display refresh rate while this window is shown.
+     * The vote is committed with the next LayoutParams update (one per frame).
+     *
+     * @param rate refresh rate (Hz), 0 for no preference
+     */
+    void setPreferredRefreshRate(float rate) {
+        if (getViewParams().preferredRefreshRate != rate) {
+            getViewParams().preferredRefreshRate = rate;
+            isRefreshRateDirty = true;
+            requestUpdateLayoutParams();
+        }
+    }
+
+    /**
+     * @return true once after the preferred refresh rate changed
+     */
+    boolean consumeRefreshRateChange() {
+        final boolean dirty = isRefreshRateDirty;
+        isRefreshRateDirty = false;
+        return dirty;
+    }
+
+    boolean isLayoutDirty() {
+        return isLayoutDirty;
+    }
+
+    void setLayoutDirty(boolean dirty) {
+        isLayoutDirty = dirty;
+    }
+
+    /**
+     * @return number of the last {@link LayoutCommitter} pass that committed this layout
+     */
+    int getCommitPass() {
+        return commitPass;
+    }
+
+    void setCommitPass(int pass) {
+        commitPass = pass;
+    }
+
     public void attachToWindow() {
         synchronized (lock) {
             if (!isAttach) {
                 isAttach = true;
-                getWindowManager().addView(this, getViewParams());
+                if (windowHost != null) {
+                    windowHost.addBubble(this);
+                } else {
+                    getWindowManager().addView(this, getViewParams());
+                }
             }
         }
     }
 
     public void detachFromWindow() {
+        detachFromWindow(true);
+    }
+
+    /**
+     * Remove the window.
+     *
+     * @param immediate true to tear the window down synchronously,
+     *                  false to let it die on the next traversal (batched removals)
+     */
+    void detachFromWindow(boolean immediate) {
         synchronized (lock) {
             if (isAttach) {
                 isAttach = false;
-                getWindowManager().removeViewImmediate(this);
+                LayoutCommitter.getInstance().cancel(this);
+                if (windowHost != null) {
+                    windowHost.removeBubble(this);
+                } else if (immediate) {
+                    getWindowManager().removeViewImmediate(this);
+                } else {
+                    getWindowManager().removeView(this);
+                }
             }
         }
     }
 
+    boolean isAttach() {
+        return isAttach;
+    }
+
     public BubbleBaseLayout(Context context) {
         super(context);
     }
@@ -70,23 +175,12 @@ class BubbleBaseLayout extends FrameLayout {
         super(context, attrs, defStyleAttr);
     }
 
-    static abstract class BubbleProperty extends Property<View, Float> {
+    /**
+     * A primitive float property of the window, so spring frames do not box values.
+     */
+    static abstract class BubbleProperty extends FloatPropertyCompat<View> {
         public BubbleProperty(String name) {
-            super(Float.class, name);
-        }
-
-        public FloatPropertyCompat<View> getPropertyCompat() {
-            return new FloatPropertyCompat<View>(getName()) {
-                @Override
-                public float getValue(View object) {
-                    return get(object);
-                }
-
-                @Override
-                public void setValue(View object, float value) {
-                    set(object, value);
-                }
-            };
+            super(name);
         }
 
         protected BubbleBaseLayout cast(View view) {
@@ -96,29 +190,29 @@ class BubbleBaseLayout extends FrameLayout {
 
     static final BubbleProperty WINDOW_X = new BubbleProperty("WINDOW_X") {
         @Override
-        public Float get(@NonNull View object) {
-            return (float) cast(object).getViewParams().x;
+        public float getValue(@NonNull View object) {
+            return cast(object).getViewParams().x;
         }
 
         @Override
-        public void set(@NonNull View object, @NonNull Float value) {
+        public void setValue(@NonNull View object, float value) {
             BubbleBaseLayout layout = cast(object);
-            layout.getViewParams().x = value.intValue();
-            layout.updateLayoutParams();
+            layout.getViewParams().x = (int) value;
+            layout.requestUpdateLayoutParams();
         }
     };
 
     static final BubbleProperty WINDOW_Y = new BubbleProperty("WINDOW_Y") {
         @Override
-        public Float get(@NonNull View object) {
-            return (float) cast(object).getViewParams().y;
+        public float getValue(@NonNull View object) {
+            return cast(object).getViewParams().y;
         }
 
         @Override
-        public void set(@NonNull View object, @NonNull Float value) {
+        public void setValue(@NonNull View object, float value) {
             BubbleBaseLayout layout = cast(object);
-            layout.getViewParams().y = value.intValue();
-            layout.updateLayoutParams();
+            layout.getViewParams().y = (int) value;
+            layout.requestUpdateLayoutParams();
         }
     };
 }
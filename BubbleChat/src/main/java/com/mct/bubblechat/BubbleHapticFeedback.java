@@ -0,0 +1,13 @@
+package com.mct.bubblechat;
+
+/**
+ * Haptic feedback of bubble gestures, see {@link BubblesManager#setHapticFeedback(BubbleHapticFeedback)}.
+ * Called on the main thread, implementations must return quickly.
+ */
+public interface BubbleHapticFeedback {
+
+    /**
+     * The dragged bubble has snapped into the trash.
+     */
+    void onSnap();
+}
@@ -1,15 +1,18 @@
 package com.mct.bubblechat;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Configuration;
-import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.PixelFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
+import android.os.Trace;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.view.Gravity;
@@ -18,19 +21,20 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
-import android.view.animation.OvershootInterpolator;
 
 import androidx.annotation.NonNull;
 import androidx.dynamicanimation.animation.DynamicAnimation;
 import androidx.dynamicanimation.animation.FloatPropertyCompat;
 import androidx.dynamicanimation.animation.SpringForce;
 
+import com.mct.bubblechat.core.BubbleGeometry;
+import com.mct.bubblechat.core.FlingResolver;
 import com.mct.touchutils.TouchUtils;
 import com.mct.touchutils.TouchUtils.FlingMoveToWallListener;
 
 import java.lang.ref.WeakReference;
 
-class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDrawListener {
+class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDrawListener, AvatarLoader.Callback {
 
     /**
      * a value representing the default X coordinate
@@ -52,6 +56,18 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
      */
     static final int DEFAULT_HEIGHT = ViewGroup.LayoutParams.WRAP_CONTENT;
 
+    /**
+     * Color of the avatar placeholder
+     */
+    private static final int AVATAR_PLACEHOLDER_COLOR = 0x66808080;
+
+    /**
+     * Unread badge (dp) and its color
+     */
+    private static final int BADGE_RADIUS_DP = 10;
+    private static final int BADGE_TEXT_SIZE_DP = 11;
+    private static final int BADGE_COLOR = 0xFFE53935;
+
     /**
      * A interface that interact between bubbleLayout & bubbleManager
      */
@@ -72,6 +88,11 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
      */
     private final DisplayMetrics mMetrics;
 
+    /**
+     * Scale animations (press, release and entrance), reused for each play
+     */
+    private final BubbleScaleAnimator mScaleAnimator;
+
     /**
      * A Rect representing the limit of the display position (screen edge)
      */
@@ -113,48 +134,31 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
     private FlingMoveToWallListener.MoveMode mMode;
 
     /**
-     * status bar's height
+     * Limit-rect math (system bars and screen edge)
      */
-    private final int mBaseStatusBarHeight;
+    private final BubbleGeometry mGeometry;
 
-    /**
-     * status bar's height(landscape)
-     */
-    private final int mBaseStatusBarRotatedHeight;
-
-    /**
-     * Current status bar's height
-     */
-    private int mStatusBarHeight;
-
-    /**
-     * Navigation bar's height(portrait)
-     */
-    private final int mBaseNavigationBarHeight;
+    private int mRotation;
 
     /**
-     * Navigation bar's height
-     * Placed bottom on the screen(tablet)
-     * Or placed vertically on the screen(phone)
+     * Position of this bubble in the follower stack
      */
-    private final int mBaseNavigationBarRotatedHeight;
+    private FollowerChain.Link mFollowerLink;
 
     /**
-     * Current Navigation bar's vertical size
+     * Id of this bubble in {@link BubblesManager}
      */
-    private int mNavigationBarVerticalOffset;
+    private int mBubbleId;
 
     /**
-     * Current Navigation bar's horizontal size
+     * Unread badge, created on first use
      */
-    private int mNavigationBarHorizontalOffset;
+    private BadgeDrawable mBadge;
 
     /**
-     * If true, it's a tablet. If false, it's a phone
+     * Animation quality
      */
-    private final boolean mIsTablet;
-
-    private int mRotation;
+    private MotionProfile mMotionProfile = MotionProfile.FULL;
 
     public BubbleLayout(Context context) {
         this(context, null);
@@ -167,6 +171,7 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
     public BubbleLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
         getWindowManager().getDefaultDisplay().getMetrics(mMetrics = new DisplayMetrics());
+        mScaleAnimator = new BubbleScaleAnimator(this);
 
         WindowManager.LayoutParams mParams = new WindowManager.LayoutParams();
         mParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
@@ -182,32 +187,13 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
 
         setViewParams(mParams);
 
-        final Resources resources = context.getResources();
-        mIsTablet = (resources.getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK) >= Configuration.SCREENLAYOUT_SIZE_LARGE;
         mRotation = getWindowManager().getDefaultDisplay().getRotation();
 
         mPositionLimitRect = new Rect();
         mSafeInsetRect = new Rect();
+        mGeometry = new BubbleGeometry();
 
-        // Get status bar height
-        mBaseStatusBarHeight = getSystemUiDimensionPixelSize(resources, "status_bar_height");
-        // Check landscape resource id
-        @SuppressLint({"DiscouragedApi", "InternalInsetResource"}) final int statusBarLandscapeResId = resources.getIdentifier("status_bar_height_landscape", "dimen", "android");
-        if (statusBarLandscapeResId > 0) {
-            mBaseStatusBarRotatedHeight = getSystemUiDimensionPixelSize(resources, "status_bar_height_landscape");
-        } else {
-            mBaseStatusBarRotatedHeight = mBaseStatusBarHeight;
-        }
-
-        // Detect NavigationBar
-        if (hasSoftNavigationBar()) {
-            mBaseNavigationBarHeight = getSystemUiDimensionPixelSize(resources, "navigation_bar_height");
-            final String resName = mIsTablet ? "navigation_bar_height_landscape" : "navigation_bar_width";
-            mBaseNavigationBarRotatedHeight = getSystemUiDimensionPixelSize(resources, resName);
-        } else {
-            mBaseNavigationBarHeight = 0;
-            mBaseNavigationBarRotatedHeight = 0;
-        }
+        loadSystemUiMetrics();
 
         setOnTouchListener(mBubbleTouchListener = new BubbleTouchListener(this));
         getViewTreeObserver().addOnPreDrawListener(this);
@@ -219,6 +205,12 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         playAnimation();
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        mScaleAnimator.cancel();
+        super.onDetachedFromWindow();
+    }
+
     /**
      * Set the coordinates for the initial drawing.
      */
@@ -250,53 +242,29 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
 
     private void playAnimation() {
         if (!isInEditMode()) {
-            startScale(this, 0f, 1f);
+            mScaleAnimator.playEntrance();
         }
     }
 
     private void playAnimationClickDown() {
         if (!isInEditMode()) {
-            startScale(this, 1f, 0.8f);
+            mScaleAnimator.playPress();
         }
     }
 
     private void playAnimationClickUp() {
         if (!isInEditMode()) {
-            startScale(this, 0.8f, 1f);
+            mScaleAnimator.playRelease();
         }
     }
 
-    private static void startScale(View target, float from, float to) {
-        AnimatorSet animatorSet = new AnimatorSet();
-        animatorSet.setInterpolator(new OvershootInterpolator());
-        animatorSet.playTogether(
-                ObjectAnimator.ofFloat(target, "ScaleX", from, to).setDuration(100),
-                ObjectAnimator.ofFloat(target, "ScaleY", from, to).setDuration(100)
-        );
-        animatorSet.start();
-    }
-
-    private boolean hasSoftNavigationBar() {
-        final DisplayMetrics realDisplayMetrics = new DisplayMetrics();
-        getWindowManager().getDefaultDisplay().getRealMetrics(realDisplayMetrics);
-        return realDisplayMetrics.heightPixels > mMetrics.heightPixels
-                || realDisplayMetrics.widthPixels > mMetrics.widthPixels;
-    }
-
     /**
-     * Get the System ui dimension(pixel)
-     *
-     * @param resources {@link Resources}
-     * @param resName   dimension resource name
-     * @return pixel size
-     */
-    private static int getSystemUiDimensionPixelSize(@NonNull Resources resources, String resName) {
-        int pixelSize = 0;
-        @SuppressLint("DiscouragedApi") final int resId = resources.getIdentifier(resName, "dimen", "android");
-        if (resId > 0) {
-            pixelSize = resources.getDimensionPixelSize(resId);
-        }
-        return pixelSize;
+     * Read the system ui dimensions from the shared cache (computed once per configuration).
+     */
+    private void loadSystemUiMetrics() {
+        final SystemUiMetrics metrics = SystemUiMetrics.get(getContext());
+        mGeometry.setSystemUi(metrics.statusBarHeight, metrics.statusBarRotatedHeight,
+                metrics.navigationBarHeight, metrics.navigationBarRotatedHeight, metrics.isTablet);
     }
 
     /**
@@ -305,6 +273,9 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
     @Override
     protected void onSizeChanged(int w, int h, int oldW, int oldH) {
         super.onSizeChanged(w, h, oldW, oldH);
+        if (mBadge != null) {
+            mBadge.layout(w, h);
+        }
         refreshLimitRect();
     }
 
@@ -314,6 +285,7 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
     @Override
     protected void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
+        loadSystemUiMetrics();
         refreshLimitRect();
     }
 
@@ -322,8 +294,8 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         updateStatusBarHeight(isHideStatusBar, isPortrait);
         // navigation bar
         updateNavigationBarOffset(isHideNavigationBar, isPortrait, windowRect);
-        // refresh
-        post(this::refreshLimitRect);
+        // refresh (screen changes are already coalesced to one per frame)
+        refreshLimitRect();
     }
 
     /**
@@ -333,30 +305,7 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
      * @param isPortrait      If true, the device orientation is portrait
      */
     private void updateStatusBarHeight(boolean isHideStatusBar, boolean isPortrait) {
-        if (isHideStatusBar) {
-            // 1.(No Cutout) No StatusBar(=0)
-            // 2.(Has Cutout)StatusBar is not included in mMetrics.heightPixels (=0)
-            mStatusBarHeight = 0;
-            return;
-        }
-
-        // Has Cutout
-        final boolean hasTopCutout = mSafeInsetRect.top != 0;
-        if (hasTopCutout) {
-            if (isPortrait) {
-                mStatusBarHeight = 0;
-            } else {
-                mStatusBarHeight = mBaseStatusBarRotatedHeight;
-            }
-            return;
-        }
-
-        // No cutout
-        if (isPortrait) {
-            mStatusBarHeight = mBaseStatusBarHeight;
-        } else {
-            mStatusBarHeight = mBaseStatusBarRotatedHeight;
-        }
+        mGeometry.updateStatusBarHeight(isHideStatusBar, isPortrait, mSafeInsetRect.top != 0);
     }
 
     /**
@@ -368,69 +317,9 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
      */
     private void updateNavigationBarOffset(boolean isHideNavigationBar, boolean isPortrait, @NonNull Rect windowRect) {
         // auto hide navigation bar(Galaxy S8, S9 and so on.)
-        final DisplayMetrics realDisplayMetrics = new DisplayMetrics();
-        getWindowManager().getDefaultDisplay().getRealMetrics(realDisplayMetrics);
-
-        int currentNavigationBarHeight = realDisplayMetrics.heightPixels - windowRect.bottom;
-        int currentNavigationBarWidth = realDisplayMetrics.widthPixels - mMetrics.widthPixels;
-        int navigationBarVerticalDiff = mBaseNavigationBarHeight - currentNavigationBarHeight;
-        final boolean hasSoftNavigationBar = hasSoftNavigationBar();
-
-        if (!isHideNavigationBar) {
-            // auto hide navigation bar
-            // Guess based on inconsistencies with other devices
-            // 1.A navigation bar built into the device (mBaseNavigationBarHeight == 0) does not cause a difference in height depending on the system state
-            // 2.A navigation bar built into the device (!hasSoftNavigationBar) intentionally sets Base to 0, so it is inconsistent
-            if (navigationBarVerticalDiff != 0 && mBaseNavigationBarHeight == 0 ||
-                    !hasSoftNavigationBar && mBaseNavigationBarHeight != 0) {
-                if (hasSoftNavigationBar) {
-                    // 1.auto hide mode -> show mode
-                    // 2.show mode -> auto hide mode -> home
-                    mNavigationBarVerticalOffset = 0;
-                } else {
-                    // show mode -> home
-                    mNavigationBarVerticalOffset = -currentNavigationBarHeight;
-                }
-            } else {
-                // normal device
-                mNavigationBarVerticalOffset = 0;
-            }
-            mNavigationBarHorizontalOffset = 0;
-            return;
-        }
-
-        // If the portrait, is displayed at the bottom of the screen
-        if (isPortrait) {
-            // auto hide navigation bar
-            if (!hasSoftNavigationBar && mBaseNavigationBarHeight != 0) {
-                mNavigationBarVerticalOffset = 0;
-            } else {
-                mNavigationBarVerticalOffset = mBaseNavigationBarHeight;
-            }
-            mNavigationBarHorizontalOffset = 0;
-            return;
-        }
-
-        // If it is a Tablet, it will appear at the bottom of the screen.
-        // If it is Phone, it will appear on the side of the screen
-        if (mIsTablet) {
-            mNavigationBarVerticalOffset = mBaseNavigationBarRotatedHeight;
-            mNavigationBarHorizontalOffset = 0;
-        } else {
-            mNavigationBarVerticalOffset = 0;
-            // auto hide navigation bar
-            // Guess based on inconsistencies with other devices
-            // 1. A navigation bar built into the device(!hasSoftNavigationBar)
-            //      is inconsistent because Base is intentionally set to 0
-            if (!hasSoftNavigationBar && mBaseNavigationBarRotatedHeight != 0) {
-                mNavigationBarHorizontalOffset = 0;
-            } else if (hasSoftNavigationBar && mBaseNavigationBarRotatedHeight == 0) {
-                // 2.Inconsistent because for soft nav bars Base is set
-                mNavigationBarHorizontalOffset = currentNavigationBarWidth;
-            } else {
-                mNavigationBarHorizontalOffset = mBaseNavigationBarRotatedHeight;
-            }
-        }
+        final SystemUiMetrics metrics = SystemUiMetrics.get(getContext());
+        mGeometry.updateNavigationBarOffset(isHideNavigationBar, isPortrait, metrics.hasSoftNavigationBar,
+                metrics.realWidthPixels, metrics.realHeightPixels, mMetrics.widthPixels, windowRect.bottom);
     }
 
     /**
@@ -451,9 +340,9 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         final int newScreenWidth = mMetrics.widthPixels;
         final int newScreenHeight = mMetrics.heightPixels;
 
-        mPositionLimitRect.set(-mOverMargin, 0,
-                newScreenWidth + mOverMargin + mNavigationBarHorizontalOffset,
-                newScreenHeight - mStatusBarHeight + mNavigationBarVerticalOffset);
+        mGeometry.updateLimitRect(mOverMargin, newScreenWidth, newScreenHeight);
+        mPositionLimitRect.set(mGeometry.getLimitLeft(), mGeometry.getLimitTop(),
+                mGeometry.getLimitRight(), mGeometry.getLimitBottom());
 
         int newRotation = getWindowManager().getDefaultDisplay().getRotation();
         float newPositionX = wall == TouchUtils.LEFT ? mPositionLimitRect.left : mPositionLimitRect.right - getWidth();
@@ -489,6 +378,24 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         mMoveDampingRatio = moveDampingRatio;
     }
 
+    void setMotionProfile(@NonNull MotionProfile profile) {
+        mMotionProfile = profile;
+    }
+
+    /**
+     * @return damping ratio of the move spring under the motion profile
+     */
+    float getMoveDampingRatio() {
+        return mMotionProfile.resolveDampingRatio(mMoveDampingRatio);
+    }
+
+    /**
+     * @return damping ratio of a snap to a drop target under the motion profile
+     */
+    float getSnapDampingRatio() {
+        return mMotionProfile.resolveDampingRatio(SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY);
+    }
+
     void setFlingMode(FlingMoveToWallListener.MoveMode mode) {
         mMode = mode;
     }
@@ -498,6 +405,24 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         this.mLayoutListener = layoutCoordinator;
     }
 
+    void setBubbleId(int id) {
+        mBubbleId = id;
+    }
+
+    int getBubbleId() {
+        return mBubbleId;
+    }
+
+    /**
+     * Enable or disable dragging (only the bubble on top of the stack is draggable).
+     *
+     * @param draggable true to handle touches
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    void setDraggable(boolean draggable) {
+        setOnTouchListener(draggable ? mBubbleTouchListener : null);
+    }
+
     void setOnBubbleRemoveListener(BubbleRemoveListener listener) {
         mBubbleRemoveListener = listener;
     }
@@ -517,33 +442,187 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         mSafeInsetRect.set(safeInsetRect);
     }
 
+    /**
+     * Area the bubble can be placed in (screen coordinates).
+     */
+    @NonNull
+    Rect getPositionLimitRect() {
+        return mPositionLimitRect;
+    }
+
     void setUpdateTarget(@NonNull BubbleLayout bubbleLayout) {
         mPositionLimitRect.set(bubbleLayout.mPositionLimitRect);
         mSafeInsetRect.set(bubbleLayout.mSafeInsetRect);
-        mStatusBarHeight = bubbleLayout.mStatusBarHeight;
-        mNavigationBarVerticalOffset = bubbleLayout.mNavigationBarVerticalOffset;
-        mNavigationBarHorizontalOffset = bubbleLayout.mNavigationBarHorizontalOffset;
+        mGeometry.set(bubbleLayout.mGeometry);
         mRotation = bubbleLayout.mRotation;
-        mBubbleTouchListener.setUpdateTarget(bubbleLayout);
+    }
+
+    /**
+     * Copy the limits and the position of the target (follower on screen change).
+     * INFO: The target must have been refreshed first.
+     *
+     * @param target bubble on top of the stack
+     */
+    void syncPosition(@NonNull BubbleLayout target) {
+        setUpdateTarget(target);
+        mBubbleTouchListener.stopAnimation();
+        mBubbleTouchListener.refresh(target.getViewParams().x, target.getViewParams().y);
+    }
+
+    /**
+     * Draw an avatar behind the floating view.
+     *
+     * @param avatar shared bitmap ({@link AvatarCache}), null to remove
+     */
+    void setAvatar(Bitmap avatar) {
+        setBackground(avatar != null ? new BitmapDrawable(getResources(), avatar) : null);
+    }
+
+    /**
+     * The avatar requested from {@link AvatarLoader} is decoded.
+     */
+    @Override
+    public void onAvatarLoaded(@NonNull Bitmap avatar) {
+        setAvatar(avatar);
+    }
+
+    /**
+     * Draw a neutral circle until the avatar is decoded ({@link AvatarLoader}).
+     */
+    void setAvatarPlaceholder() {
+        final GradientDrawable placeholder = new GradientDrawable();
+        placeholder.setShape(GradientDrawable.OVAL);
+        placeholder.setColor(AVATAR_PLACEHOLDER_COLOR);
+        setBackground(placeholder);
+    }
+
+    /**
+     * Show an unread count over the bubble.
+     * Only the badge area is redrawn: the size of the bubble and its window never change.
+     *
+     * @param count count, 0 to hide
+     */
+    void setBadgeCount(int count) {
+        if (mBadge == null) {
+            if (count <= 0) {
+                return;
+            }
+            final float density = getResources().getDisplayMetrics().density;
+            mBadge = new BadgeDrawable(BADGE_RADIUS_DP * density, BADGE_TEXT_SIZE_DP * density, BADGE_COLOR);
+            mBadge.setCallback(this);
+            mBadge.layout(getWidth(), getHeight());
+        }
+        mBadge.setCount(count);
+    }
+
+    int getBadgeCount() {
+        return mBadge != null ? mBadge.getCount() : 0;
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == mBadge || super.verifyDrawable(who);
+    }
+
+    /**
+     * Draw the badge over the children (onDrawForeground needs API 23).
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mBadge != null) {
+            mBadge.draw(canvas);
+        }
+    }
+
+    /**
+     * Notify the chain whenever this bubble moves, so that its followers chase it.
+     *
+     * @param chain {@link FollowerChain}
+     */
+    void setFollowerChain(@NonNull FollowerChain chain) {
+        mBubbleTouchListener.setFollowerChain(chain);
+    }
+
+    void setFollowerLink(FollowerChain.Link link) {
+        mFollowerLink = link;
+    }
+
+    FollowerChain.Link getFollowerLink() {
+        return mFollowerLink;
+    }
+
+    /**
+     * @return true while the springs of this bubble are running
+     */
+    boolean isMoving() {
+        return mBubbleTouchListener.isMoving();
+    }
+
+    /**
+     * Animate the springs toward a position (follower).
+     *
+     * @param x X coordinate of the window
+     * @param y Y coordinate of the window
+     */
+    void animateTo(int x, int y) {
+        mBubbleTouchListener.animateToX(x);
+        mBubbleTouchListener.animateToY(y);
     }
 
     private static class BubbleTouchListener extends FlingMoveToWallListener {
 
+        /**
+         * Trace section of a release (fling resolution and spring start)
+         */
+        private static final String TRACE_FLING = "BubbleChat#fling";
+
         WeakReference<BubbleLayout> bubbleLayout;
-        WeakReference<BubbleLayout> mUpdateBubble;
         FloatPropertyCompat<View> propertyCompatX, propertyCompatY;
         Point movePosition;
-        boolean isInTrash;
+        Rect area;
+        boolean isInTarget;
+        FlingResolver flingResolver;
+
+        DynamicAnimation.OnAnimationEndListener snapEndListener;
 
-        DynamicAnimation.OnAnimationUpdateListener updateListenerX;
-        DynamicAnimation.OnAnimationUpdateListener updateListenerY;
+        DynamicAnimation.OnAnimationEndListener settleListener;
+
+        DynamicAnimation.OnAnimationUpdateListener chainUpdateListener;
 
         public BubbleTouchListener(BubbleLayout bubbleLayout) {
             this.bubbleLayout = new WeakReference<>(bubbleLayout);
-            propertyCompatX = WINDOW_X.getPropertyCompat();
-            propertyCompatY = WINDOW_Y.getPropertyCompat();
+            propertyCompatX = WINDOW_X;
+            propertyCompatY = WINDOW_Y;
             movePosition = new Point();
+            area = new Rect();
+            flingResolver = new FlingResolver();
+            snapEndListener = (animation, canceled, value, velocity) -> {
+                if (!canceled && !getSpringX().isRunning() && !getSpringY().isRunning()) {
+                    isInTarget = false;
+                    this.bubbleLayout.get().playAnimationClickUp();
+                    this.bubbleLayout.get().mLayoutListener.onBubbleRelease();
+                    // Dropped on a target that kept the bubble
+                    if (this.bubbleLayout.get().isAttach()) {
+                        returnToWall();
+                    }
+                }
+                if (!getSpringX().isRunning()) getSpringX().removeEndListener(snapEndListener);
+                if (!getSpringY().isRunning()) getSpringY().removeEndListener(snapEndListener);
+            };
             init(bubbleLayout);
+            settleListener = (animation, canceled, value, velocity) -> {
+                final BubbleLayoutListener listener = this.bubbleLayout.get().mLayoutListener;
+                if (listener != null && !isMoving()) {
+                    listener.onBubbleSettled();
+                }
+            };
+            getSpringX().addEndListener(settleListener);
+            getSpringY().addEndListener(settleListener);
+        }
+
+        boolean isMoving() {
+            return getSpringX().isRunning() || getSpringY().isRunning();
         }
 
         public void refresh(float newPositionX, float newPositionY) {
@@ -555,34 +634,17 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
             Rect moveArea = getMoveArea();
             v.getViewParams().x = (int) TouchUtils.coerceIn(newPositionX, moveArea.left, moveArea.right);
             v.getViewParams().y = (int) TouchUtils.coerceIn(newPositionY, moveArea.top, moveArea.bottom);
-            v.updateLayoutParams();
+            v.requestUpdateLayoutParams();
         }
 
-        public void setUpdateTarget(BubbleLayout bubbleLayout) {
-            clearUpdateTarget();
-            mUpdateBubble = new WeakReference<>(bubbleLayout);
-            addUpdateListener();
-        }
-
-        void addUpdateListener() {
-            final int delay = 5;
-            updateListenerX = (animation, value, velocity)
-                    -> mUpdateBubble.get().postDelayed(()
-                    -> mUpdateBubble.get().mBubbleTouchListener.animateToX(value), delay);
-            updateListenerY = (animation, value, velocity)
-                    -> mUpdateBubble.get().postDelayed(()
-                    -> mUpdateBubble.get().mBubbleTouchListener.animateToY(value), delay);
-            getSpringX().addUpdateListener(updateListenerX);
-            getSpringY().addUpdateListener(updateListenerY);
-        }
-
-        void clearUpdateTarget() {
-            getSpringX().removeUpdateListener(updateListenerX);
-            getSpringY().removeUpdateListener(updateListenerY);
-            updateListenerX = updateListenerY = null;
-            if (mUpdateBubble != null && mUpdateBubble.get() != null) {
-                mUpdateBubble.clear();
+        void setFollowerChain(FollowerChain chain) {
+            if (chainUpdateListener != null) {
+                getSpringX().removeUpdateListener(chainUpdateListener);
+                getSpringY().removeUpdateListener(chainUpdateListener);
             }
+            chainUpdateListener = (animation, value, velocity) -> chain.requestFrame();
+            getSpringX().addUpdateListener(chainUpdateListener);
+            getSpringY().addUpdateListener(chainUpdateListener);
         }
 
         void animateToX(float value) {
@@ -596,7 +658,8 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
         @NonNull
         @Override
         protected Rect initArea(View view) {
-            return new Rect(bubbleLayout.get().mPositionLimitRect);
+            area.set(bubbleLayout.get().mPositionLimitRect);
+            return area;
         }
 
         @Override
@@ -616,7 +679,7 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
 
         @Override
         protected float getMoveDampingRatio() {
-            return bubbleLayout.get().mMoveDampingRatio;
+            return bubbleLayout.get().getMoveDampingRatio();
         }
 
         @NonNull
@@ -627,7 +690,10 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
 
         @Override
         protected boolean onActionDown(@NonNull View view, @NonNull MotionEvent event) {
+            isInTarget = false;
+            flingResolver.reset();
             bubbleLayout.get().playAnimationClickDown();
+            bubbleLayout.get().mLayoutListener.onBubbleDown();
             return super.onActionDown(view, event);
         }
 
@@ -637,17 +703,20 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
                 int x = (int) (event.getRawX() + getDownX());
                 int y = (int) (event.getRawY() + getDownY());
                 movePosition.set(x, y);
-                if (bubbleLayout.get().mLayoutListener.onBubbleMove(movePosition)) {
-                    if (!isInTrash) {
-                        isInTrash = true;
-                        float damping = SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY;
-                        float stiffness = SpringForce.STIFFNESS_MEDIUM;
-                        moveToTrash(movePosition, damping, stiffness);
+                flingResolver.addSample(event.getEventTime(), x, y);
+                final BubbleLayoutListener listener = bubbleLayout.get().mLayoutListener;
+                if (listener.onBubbleMove(movePosition)) {
+                    // The position is replaced by the snap point when a (new) target captures the bubble
+                    if (!isInTarget || movePosition.x != x || movePosition.y != y) {
+                        isInTarget = true;
+                        float damping = bubbleLayout.get().getSnapDampingRatio();
+                        float stiffness = listener.getSnapStiffness();
+                        moveToTarget(movePosition, damping, stiffness);
                     }
                     return true;
                 } else {
-                    if (isInTrash) {
-                        isInTrash = false;
+                    if (isInTarget) {
+                        isInTarget = false;
                         resetForce(false);
                     }
                     return super.onActionMove(view, event);
@@ -658,32 +727,65 @@ class BubbleLayout extends BubbleBaseLayout implements ViewTreeObserver.OnPreDra
 
         @Override
         protected void handleFling(View view, Point predictPosition) {
-            if (predictPosition != null && bubbleLayout.get().mLayoutListener.onBubbleFling(predictPosition)) {
-                DynamicAnimation.OnAnimationEndListener endListener = new DynamicAnimation.OnAnimationEndListener() {
-                    @Override
-                    public void onAnimationEnd(DynamicAnimation animation, boolean canceled, float value, float velocity) {
-                        if (!canceled && !getSpringX().isRunning() && !getSpringY().isRunning()) {
-                            bubbleLayout.get().playAnimationClickUp();
-                            bubbleLayout.get().mLayoutListener.onBubbleRelease();
-                        }
-                        if (!getSpringX().isRunning()) getSpringX().removeEndListener(this);
-                        if (!getSpringY().isRunning()) getSpringY().removeEndListener(this);
-                    }
-                };
-                getSpringX().addEndListener(endListener);
-                getSpringY().addEndListener(endListener);
-                float damping = SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY;
-                float stiffness = 300;
-                moveToTrash(predictPosition, damping, stiffness);
+            Trace.beginSection(TRACE_FLING);
+            try {
+                fling(view, predictPosition);
+            } finally {
+                Trace.endSection();
+            }
+        }
+
+        private void fling(View view, Point predictPosition) {
+            if (predictPosition != null) {
+                resolveFling(predictPosition);
+            }
+            final BubbleLayoutListener listener = bubbleLayout.get().mLayoutListener;
+            if (predictPosition != null && listener.onBubbleFling(predictPosition)) {
+                // The same listener instance is reused, avoid registering it twice
+                getSpringX().removeEndListener(snapEndListener);
+                getSpringY().removeEndListener(snapEndListener);
+                getSpringX().addEndListener(snapEndListener);
+                getSpringY().addEndListener(snapEndListener);
+                // Keep the release momentum, the destination is final so there is no course correction
+                getSpringX().setStartVelocity(flingResolver.getVelocityX());
+                getSpringY().setStartVelocity(flingResolver.getVelocityY());
+                float damping = bubbleLayout.get().getSnapDampingRatio();
+                float stiffness = listener.getFlingSnapStiffness();
+                moveToTarget(predictPosition, damping, stiffness);
             } else {
+                isInTarget = false;
                 bubbleLayout.get().playAnimationClickUp();
                 bubbleLayout.get().mLayoutListener.onBubbleRelease();
                 super.handleFling(view, predictPosition);
             }
         }
 
-        void moveToTrash(@NonNull Point position, float damping, float stiffness) {
-            position.x -= bubbleLayout.get().mNavigationBarHorizontalOffset / 2;
+        /**
+         * Replace the predicted position by where the release velocity carries the bubble
+         * with the move spring of its Options, so the wall or target is chosen once at release.
+         * The motion profile changes how the bubble gets there, not where.
+         *
+         * @param predictPosition predicted position, updated in place
+         */
+        void resolveFling(@NonNull Point predictPosition) {
+            final BubbleLayout v = bubbleLayout.get();
+            final float stiffness = v.mMoveStiffness;
+            final float damping = v.mMoveDampingRatio;
+            flingResolver.computeVelocity();
+            predictPosition.set(
+                    flingResolver.projectX(v.getViewParams().x, stiffness, damping),
+                    flingResolver.projectY(v.getViewParams().y, stiffness, damping));
+        }
+
+        /**
+         * Fling to the nearest wall from the current position.
+         */
+        void returnToWall() {
+            super.handleFling(bubbleLayout.get(), null);
+        }
+
+        void moveToTarget(@NonNull Point position, float damping, float stiffness) {
+            position.x -= bubbleLayout.get().mGeometry.getNavigationBarHorizontalOffset() / 2;
             moveTo(position, damping, stiffness);
         }
 
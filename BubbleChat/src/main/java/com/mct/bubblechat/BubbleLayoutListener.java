@@ -4,10 +4,27 @@ import android.graphics.Point;
 
 interface BubbleLayoutListener {
 
+    void onBubbleDown();
+
     boolean onBubbleMove(Point position);
 
     boolean onBubbleFling(Point predictPosition);
 
     void onBubbleRelease();
 
+    /**
+     * The springs of the bubble came to rest.
+     */
+    void onBubbleSettled();
+
+    /**
+     * Stiffness of the spring snapping the bubble to the drop target that has captured it.
+     */
+    float getSnapStiffness();
+
+    /**
+     * Stiffness of the spring carrying a flung bubble to the drop target that has captured it.
+     */
+    float getFlingSnapStiffness();
+
 }
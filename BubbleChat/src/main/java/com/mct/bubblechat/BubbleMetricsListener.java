@@ -0,0 +1,11 @@
+package com.mct.bubblechat;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the performance metrics of each bubble gesture (down → release).
+ * Called on the main thread.
+ */
+public interface BubbleMetricsListener {
+    void onGestureMetrics(@NonNull GestureMetrics metrics);
+}
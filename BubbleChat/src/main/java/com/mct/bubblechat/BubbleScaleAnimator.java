@@ -0,0 +1,103 @@
+package com.mct.bubblechat;
+
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.view.View;
+import android.view.animation.OvershootInterpolator;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Press, release and entrance scale animations of a bubble.<br/>
+ * A single preallocated animator is retargeted from the current scale on each play,
+ * so rapid taps cancel and continue without a jump and without allocating.
+ * INFO: Must be used from the main thread.
+ */
+final class BubbleScaleAnimator implements ValueAnimator.AnimatorUpdateListener {
+
+    /**
+     * Scale while the bubble is pressed
+     */
+    static final float PRESSED_SCALE = 0.8f;
+
+    /**
+     * Duration of a play
+     */
+    private static final long DURATION_MILLIS = 100L;
+
+    /**
+     * Shared by every bubble (stateless)
+     */
+    private static final TimeInterpolator INTERPOLATOR = new OvershootInterpolator();
+
+    /**
+     * Animated view
+     */
+    private final View mView;
+
+    /**
+     * Animates the progress from 0 to 1, the scale is interpolated in {@link #onAnimationUpdate}
+     */
+    private final ValueAnimator mAnimator;
+
+    /**
+     * Scale at the start and at the end of the current play
+     */
+    private float mFromScale;
+    private float mToScale;
+
+    BubbleScaleAnimator(@NonNull View view) {
+        mView = view;
+        mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mAnimator.setDuration(DURATION_MILLIS);
+        mAnimator.setInterpolator(INTERPOLATOR);
+        mAnimator.addUpdateListener(this);
+    }
+
+    /**
+     * Grow from nothing (attached to the window).
+     */
+    void playEntrance() {
+        animate(0f, 1f);
+    }
+
+    /**
+     * Shrink from the current scale (touch down).
+     */
+    void playPress() {
+        animate(mView.getScaleX(), PRESSED_SCALE);
+    }
+
+    /**
+     * Grow back from the current scale (touch up).
+     */
+    void playRelease() {
+        animate(mView.getScaleX(), 1f);
+    }
+
+    /**
+     * Stop where the animation is.
+     */
+    void cancel() {
+        mAnimator.cancel();
+    }
+
+    private void animate(float from, float to) {
+        mAnimator.cancel();
+        mFromScale = from;
+        mToScale = to;
+        setScale(from);
+        mAnimator.start();
+    }
+
+    @Override
+    public void onAnimationUpdate(@NonNull ValueAnimator animation) {
+        // getAnimatedFraction() is already interpolated and does not box like getAnimatedValue()
+        setScale(mFromScale + (mToScale - mFromScale) * animation.getAnimatedFraction());
+    }
+
+    private void setScale(float scale) {
+        mView.setScaleX(scale);
+        mView.setScaleY(scale);
+    }
+}
@@ -10,12 +10,9 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.Message;
-import android.os.SystemClock;
-import android.os.Vibrator;
 import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.ViewConfiguration;
@@ -29,9 +26,12 @@ import android.widget.ImageView;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 
+import com.mct.bubblechat.core.TrashGeometry;
+
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
 
 /**
  * BubbleLayout View for erasing .
@@ -45,19 +45,19 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
     private static final int BACKGROUND_HEIGHT = 164;
 
     /**
-     * Horizontal area to capture target(dp)
+     * Animation time for enlargement/reduction of delete icon
      */
-    private static final float TARGET_CAPTURE_HORIZONTAL_REGION = 64.0f;
+    private static final long TRASH_ICON_SCALE_DURATION_MILLIS = 200L;
 
     /**
-     * vertical area to capture target(dp)
+     * Number of target sizes whose enter animation is kept
      */
-    private static final float TARGET_CAPTURE_VERTICAL_REGION = 32.0f;
+    private static final int MAX_CACHED_ENTER_ANIMATORS = 4;
 
     /**
-     * Animation time for enlargement/reduction of delete icon
+     * Shared interpolator of the delete icon animations
      */
-    private static final long TRASH_ICON_SCALE_DURATION_MILLIS = 200L;
+    private static final OvershootInterpolator SCALE_INTERPOLATOR = new OvershootInterpolator();
 
     /**
      * A constant representing the no-animation state
@@ -90,11 +90,6 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      */
     private static final int LONG_PRESS_TIMEOUT = ViewConfiguration.getLongPressTimeout();
 
-    /**
-     * Vibrator
-     */
-    private final Vibrator mVibrator;
-
     /**
      * DisplayMetrics
      */
@@ -136,19 +131,31 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
     private final FrameLayout mBackgroundView;
 
     /**
-     * Animation when entering the frame of the delete icon (enlarge)
+     * Animation when entering the frame of the delete icon (enlarge), for the current target size
      */
     private ObjectAnimator mEnterScaleAnimator;
 
+    /**
+     * Enter animations by target size, so switching between bubbles of different sizes reuses them.
+     * The least recently used size is evicted first.
+     */
+    private final LruCache<Long, ObjectAnimator> mEnterScaleAnimators;
+
+    /**
+     * Target size of {@link #mEnterScaleAnimator}
+     */
+    private float mEnterTargetWidth;
+    private float mEnterTargetHeight;
+
     /**
      * Animation when going out of the frame of the delete icon (shrinking)
      */
-    private ObjectAnimator mExitScaleAnimator;
+    private final ObjectAnimator mExitScaleAnimator;
 
     /**
-     * the handler that does the animation
+     * the controller that does the animation
      */
-    private final AnimationHandler mAnimationHandler;
+    private final AnimationController mAnimationController;
 
     /**
      * TrashViewListener
@@ -156,15 +163,36 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
     private TrashViewListener mTrashViewListener;
 
     /**
-     * trash Position
+     * trash Position and hit-box
      */
-    private final Point trashPosition;
+    private final TrashGeometry mTrashGeometry;
 
     /**
      * View valid / invalid flag (not displayed if invalid)
      */
     private boolean mIsEnabled;
 
+    /**
+     * False to keep the background hidden instead of fading it ({@link MotionProfile})
+     */
+    private boolean mIsBackgroundFadeEnabled = true;
+
+    /**
+     * Distance a bubble moves before a touch becomes a drag
+     */
+    private final int mTouchSlop;
+
+    /**
+     * BubbleLayout's position at ACTION_DOWN
+     */
+    private float mDownX;
+    private float mDownY;
+
+    /**
+     * True once the bubble has moved past the touch slop (the touch is a drag, not a tap)
+     */
+    private boolean mIsDragging;
+
     /**
      * constructor
      *
@@ -172,11 +200,13 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      */
     BubbleTrash(Context context) {
         super(context);
-        mVibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
         mMetrics = new DisplayMetrics();
         getWindowManager().getDefaultDisplay().getMetrics(mMetrics);
-        mAnimationHandler = new AnimationHandler(Looper.getMainLooper(), this);
-        trashPosition = new Point();
+        mAnimationController = new AnimationController(this);
+        mEnterScaleAnimators = new LruCache<>(MAX_CACHED_ENTER_ANIMATORS);
+        mTrashGeometry = new TrashGeometry();
+        mTrashGeometry.setDensity(mMetrics.density);
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
         setTrashEnabled(true);
 
         WindowManager.LayoutParams mParams = new WindowManager.LayoutParams();
@@ -219,6 +249,8 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         final LayoutParams actionTrashIconParams = new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
         actionTrashIconParams.gravity = Gravity.CENTER;
         mTrashIconRootView.addView(mActionTrashIconView, actionTrashIconParams);
+        // The exit animation always goes back to 1.0, it is created once
+        mExitScaleAnimator = createScaleAnimator(1.0f);
 
         // Paste a fixed icon
         final LayoutParams fixedTrashIconParams = new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
@@ -276,16 +308,16 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      * Determine your position from the screen size.
      */
     private void updateViewLayout() {
-        post(() -> {
-            trashPosition.x = mBackgroundView.getWidth() / 2;
-            trashPosition.y = mTrashIconRootView.getTop() - mFixedTrashIconView.getTop();
-        });
+        post(() -> mTrashGeometry.setTrashPosition(
+                mBackgroundView.getWidth() / 2,
+                mTrashIconRootView.getTop() - mFixedTrashIconView.getTop()));
         getWindowManager().getDefaultDisplay().getMetrics(mMetrics);
+        mTrashGeometry.setDensity(mMetrics.density);
         getViewParams().x = (mMetrics.widthPixels - getWidth()) / 2;
         getViewParams().y = 0;
         // Update view and layout
         mTrashViewListener.onUpdateActionTrashIcon();
-        mAnimationHandler.onUpdateViewLayout();
+        mAnimationController.onUpdateViewLayout();
 
         updateLayoutParams();
     }
@@ -295,13 +327,20 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      */
     void dismiss() {
         // Animation stop
-        mAnimationHandler.removeMessages(ANIMATION_OPEN);
-        mAnimationHandler.removeMessages(ANIMATION_CLOSE);
-        mAnimationHandler.sendAnimationMessage(ANIMATION_FORCE_CLOSE);
+        mAnimationController.cancel(ANIMATION_OPEN);
+        mAnimationController.cancel(ANIMATION_CLOSE);
+        mAnimationController.start(ANIMATION_FORCE_CLOSE);
         // stop zoom animation
         setScaleTrashIconImmediately(false);
     }
 
+    /**
+     * @return false until the trash has been laid out, its hit-box is not meaningful before
+     */
+    boolean hasTrashPosition() {
+        return mTrashGeometry.hasTrashPosition();
+    }
+
     /**
      * Window Gets the drawing area on top.
      * Represents the hitbox rectangle.
@@ -309,11 +348,8 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      * @param outRect Rect to make changes
      */
     void getWindowDrawingRect(@NonNull Rect outRect) {
-        final int left = (int) (trashPosition.x - TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
-        final int top = (int) (trashPosition.y - TARGET_CAPTURE_VERTICAL_REGION * mMetrics.density);
-        final int right = (int) (trashPosition.x + TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
-        final int bottom = (int) (trashPosition.y + 2 * TARGET_CAPTURE_VERTICAL_REGION * mMetrics.density);
-        outRect.set(left, top, right, bottom);
+        outRect.set(mTrashGeometry.getHitLeft(), mTrashGeometry.getHitTop(),
+                mTrashGeometry.getHitRight(), mTrashGeometry.getHitBottom());
     }
 
     /**
@@ -327,24 +363,63 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         if (noHasTrashIcon()) {
             return;
         }
+        mAnimationController.mTargetWidth = width;
+        mAnimationController.mTargetHeight = height;
+        // Called on every attach and layout of the trash, only retarget if the size has changed
+        if (mEnterScaleAnimator != null && width == mEnterTargetWidth && height == mEnterTargetHeight) {
+            return;
+        }
+        mEnterTargetWidth = width;
+        mEnterTargetHeight = height;
         // Magnification setting
-        mAnimationHandler.mTargetWidth = width;
-        mAnimationHandler.mTargetHeight = height;
         final float newWidthScale = width / mActionTrashIconBaseWidth;
         final float newHeightScale = height / mActionTrashIconBaseHeight;
         mActionTrashIconMaxScale = Math.max(newWidthScale, newHeightScale);
-        // Enter animation creation
-        mEnterScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, mActionTrashIconMaxScale), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, mActionTrashIconMaxScale));
-        mEnterScaleAnimator.setInterpolator(new OvershootInterpolator());
-        mEnterScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
-        // Exit animation creation
-        mExitScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, 1.0f), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, 1.0f));
-        mExitScaleAnimator.setInterpolator(new OvershootInterpolator());
-        mExitScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
+        // Enter animation of this size
+        final long key = (long) Float.floatToIntBits(width) << 32 | Float.floatToIntBits(height) & 0xffffffffL;
+        ObjectAnimator animator = mEnterScaleAnimators.get(key);
+        if (animator == null) {
+            animator = createScaleAnimator(mActionTrashIconMaxScale);
+            mEnterScaleAnimators.put(key, animator);
+        }
+        if (mEnterScaleAnimator != null && mEnterScaleAnimator.isStarted()) {
+            mEnterScaleAnimator.cancel();
+        }
+        mEnterScaleAnimator = animator;
+    }
+
+    /**
+     * Create an animation of the action delete icon from its current scale.
+     *
+     * @param scale final scale
+     * @return animator
+     */
+    @NonNull
+    private ObjectAnimator createScaleAnimator(float scale) {
+        final ObjectAnimator animator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView,
+                PropertyValuesHolder.ofFloat(ImageView.SCALE_X, scale),
+                PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, scale));
+        animator.setInterpolator(SCALE_INTERPOLATOR);
+        animator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
+        return animator;
     }
 
-    Point getTrashPosition() {
-        return new Point(trashPosition);
+    /**
+     * Drop the enter animations, their scale depends on the size of the action delete icon.
+     */
+    private void clearEnterScaleAnimators() {
+        cancelScaleTrashAnimation();
+        mEnterScaleAnimators.evictAll();
+        mEnterScaleAnimator = null;
+    }
+
+    /**
+     * Gets the center of the delete icon.
+     *
+     * @param outPoint Point to make changes
+     */
+    void getTrashPosition(@NonNull Point outPoint) {
+        outPoint.set(mTrashGeometry.getTrashX(), mTrashGeometry.getTrashY());
     }
 
     /**
@@ -374,6 +449,7 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      */
     void setActionTrashIconImage(int resId) {
         mActionTrashIconView.setImageResource(resId);
+        clearEnterScaleAnimators();
         final Drawable drawable = mActionTrashIconView.getDrawable();
         if (drawable != null) {
             mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
@@ -399,6 +475,7 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      */
     void setActionTrashIconImage(Drawable drawable) {
         mActionTrashIconView.setImageDrawable(drawable);
+        clearEnterScaleAnimators();
         if (drawable != null) {
             mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
             mActionTrashIconBaseHeight = drawable.getIntrinsicHeight();
@@ -422,8 +499,8 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
      * @param isEnter true if the region is entered, false otherwise
      */
     void setScaleTrashIcon(boolean isEnter) {
-        // Do nothing if no action icon is set
-        if (noHasTrashIcon()) {
+        // Do nothing if no action icon is set (or its size is not known yet)
+        if (noHasTrashIcon() || mEnterScaleAnimator == null) {
             return;
         }
 
@@ -465,8 +542,16 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
     }
 
     boolean isTrashReady() {
-        return mAnimationHandler.isAnimationStarted(ANIMATION_OPEN) &&
-                SystemClock.uptimeMillis() - mAnimationHandler.mStartTime > AnimationHandler.TRASH_OPEN_DURATION_MILLIS;
+        return mAnimationController.isOpenFinished();
+    }
+
+    /**
+     * Enter animation of the current action icon size.
+     *
+     * @return animator or null if no size is known yet
+     */
+    ObjectAnimator getEnterScaleAnimator() {
+        return mEnterScaleAnimator;
     }
 
     /**
@@ -479,11 +564,37 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         }
 
         // out-of-frame animation
-        if (mExitScaleAnimator != null && mExitScaleAnimator.isStarted()) {
+        if (mExitScaleAnimator.isStarted()) {
             mExitScaleAnimator.cancel();
         }
     }
 
+    /**
+     * Measure and lay out the hierarchy at screen size before the window exists,
+     * so that the first drag only has to attach it.
+     */
+    void prewarm() {
+        if (isAttach()) {
+            return;
+        }
+        getWindowManager().getDefaultDisplay().getMetrics(mMetrics);
+        measure(MeasureSpec.makeMeasureSpec(mMetrics.widthPixels, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(mMetrics.heightPixels, MeasureSpec.EXACTLY));
+        layout(0, 0, getMeasuredWidth(), getMeasuredHeight());
+    }
+
+    /**
+     * Enable or disable the background fade while the trash is open.
+     *
+     * @param enabled false to never draw the background
+     */
+    void setBackgroundFadeEnabled(boolean enabled) {
+        mIsBackgroundFadeEnabled = enabled;
+        if (!enabled) {
+            mBackgroundView.setAlpha(0.0f);
+        }
+    }
+
     /**
      * Set a TrashViewListener.
      *
@@ -503,43 +614,50 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
     void onTouchBubbleLayout(int action, float x, float y) {
         // press down
         if (action == MotionEvent.ACTION_DOWN) {
-            mAnimationHandler.updateTargetPosition(x, y);
+            mDownX = x;
+            mDownY = y;
+            mIsDragging = false;
+            mAnimationController.updateTargetPosition(x, y);
             // Wait for long press
-            mAnimationHandler.removeMessages(ANIMATION_CLOSE);
-            mAnimationHandler.sendAnimationMessageDelayed(ANIMATION_OPEN, LONG_PRESS_TIMEOUT);
+            mAnimationController.cancel(ANIMATION_CLOSE);
+            mAnimationController.startDelayed(ANIMATION_OPEN, LONG_PRESS_TIMEOUT);
         }
         // move
         else if (action == MotionEvent.ACTION_MOVE) {
-            mAnimationHandler.updateTargetPosition(x, y);
+            mAnimationController.updateTargetPosition(x, y);
+            // Moves within the touch slop are still a tap, the trash window is not attached for it
+            if (!mIsDragging) {
+                final float dx = x - mDownX;
+                final float dy = y - mDownY;
+                if (dx * dx + dy * dy < mTouchSlop * mTouchSlop) {
+                    return;
+                }
+                mIsDragging = true;
+            }
             // Only run if the open animation has not started yet
-            if (!mAnimationHandler.isAnimationStarted(ANIMATION_OPEN)) {
-                // Delete long press message
-                mAnimationHandler.removeMessages(ANIMATION_OPEN);
+            if (!mAnimationController.isAnimationStarted(ANIMATION_OPEN)) {
+                // Cancel long press wait
+                mAnimationController.cancel(ANIMATION_OPEN);
                 // open
-                mAnimationHandler.sendAnimationMessage(ANIMATION_OPEN);
+                mAnimationController.start(ANIMATION_OPEN);
             }
         }
         // push up, cancel
         else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
-            // Delete long press message
-            mAnimationHandler.removeMessages(ANIMATION_OPEN);
-            mAnimationHandler.sendAnimationMessage(ANIMATION_CLOSE);
+            // Cancel long press wait
+            mAnimationController.cancel(ANIMATION_OPEN);
+            // Nothing to close after a tap
+            if (isAttach()) {
+                mAnimationController.start(ANIMATION_CLOSE);
+            }
         }
     }
 
-    void vibrate() {
-        mVibrator.vibrate(50);
-    }
-
     /**
-     * Handler that controls animation.
+     * Frame driver that controls animation.<br/>
+     * Runs on the display's vsync through Choreographer and stops posting frames when nothing animates.
      */
-    static class AnimationHandler extends Handler {
-
-        /**
-         * milliseconds to refresh the animation
-         */
-        private static final long ANIMATION_REFRESH_TIME_MILLIS = 10L;
+    static class AnimationController implements Choreographer.FrameCallback {
 
         /**
          * background animation time
@@ -577,30 +695,35 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         private static final int TRASH_MOVE_LIMIT_TOP_OFFSET = -10;
 
         /**
-         * Constant representing the start of the animation
+         * maximum alpha
          */
-        private static final int TYPE_FIRST = 1;
+        private static final float MAX_ALPHA = 1.0f;
 
         /**
-         * Constant representing animation update
+         * minimum alpha
          */
-        private static final int TYPE_UPDATE = 2;
+        private static final float MIN_ALPHA = 0.0f;
 
         /**
-         * maximum alpha
+         * Choreographer
          */
-        private static final float MAX_ALPHA = 1.0f;
+        private final Choreographer mChoreographer;
 
         /**
-         * minimum alpha
+         * Starts the animation waiting for its delay (long press)
          */
-        private static final float MIN_ALPHA = 0.0f;
+        private final Choreographer.FrameCallback mDelayedStartCallback;
 
         /**
-         * the time the animation started
+         * the frame time the animation started
          */
         private long mStartTime;
 
+        /**
+         * Time elapsed since the animation started, as of the last frame
+         */
+        private long mElapsedTime;
+
         /**
          * Alpha value at the start of the animation
          */
@@ -616,6 +739,31 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
          */
         private int mStartedCode;
 
+        /**
+         * Code for animation whose frames are being driven
+         */
+        private int mRunningCode;
+
+        /**
+         * Code for animation waiting for its start delay
+         */
+        private int mPendingCode;
+
+        /**
+         * True if the next frame is the first frame of mRunningCode
+         */
+        private boolean mIsFirstFrame;
+
+        /**
+         * True if a frame callback has been posted
+         */
+        private boolean mIsFrameScheduled;
+
+        /**
+         * True if the follow target moved since the last frame
+         */
+        private boolean mIsTargetMoved;
+
         /**
          * X coordinate of follow target
          */
@@ -659,43 +807,59 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         /**
          * constructor
          */
-        AnimationHandler(Looper looper, BubbleTrash trashView) {
-            super(looper);
+        AnimationController(BubbleTrash trashView) {
+            mChoreographer = Choreographer.getInstance();
             mTrashView = new WeakReference<>(trashView);
             mStartedCode = ANIMATION_NONE;
+            mRunningCode = ANIMATION_NONE;
+            mPendingCode = ANIMATION_NONE;
             mTrashIconLimitPosition = new Rect();
             mOvershootInterpolator = new OvershootInterpolator(OVERSHOOT_TENSION);
+            mDelayedStartCallback = frameTimeNanos -> {
+                final int animationCode = mPendingCode;
+                mPendingCode = ANIMATION_NONE;
+                start(animationCode);
+                // Run the first frame now instead of waiting for the next vsync
+                mChoreographer.removeFrameCallback(this);
+                doFrame(frameTimeNanos);
+            };
         }
 
         /**
          * handle the animation.
          */
         @Override
-        public void handleMessage(Message msg) {
+        public void doFrame(long frameTimeNanos) {
+            mIsFrameScheduled = false;
             final BubbleTrash trashView = mTrashView.get();
             if (trashView == null) {
-                removeMessages(ANIMATION_OPEN);
-                removeMessages(ANIMATION_CLOSE);
-                removeMessages(ANIMATION_FORCE_CLOSE);
+                mPendingCode = ANIMATION_NONE;
+                mRunningCode = ANIMATION_NONE;
+                mChoreographer.removeFrameCallback(mDelayedStartCallback);
                 return;
             }
 
             // Don't animate if not valid
             if (trashView.isTrashDisabled()) {
+                mRunningCode = ANIMATION_NONE;
                 return;
             }
 
-            final int animationCode = msg.what;
-            final int animationType = msg.arg1;
+            final int animationCode = mRunningCode;
+            if (animationCode == ANIMATION_NONE) {
+                return;
+            }
             final FrameLayout backgroundView = trashView.mBackgroundView;
             final FrameLayout trashIconRootView = trashView.mTrashIconRootView;
             final TrashViewListener listener = trashView.mTrashViewListener;
             final float screenWidth = trashView.mMetrics.widthPixels;
             final float trashViewX = trashView.getViewParams().x;
+            final long frameTimeMillis = TimeUnit.NANOSECONDS.toMillis(frameTimeNanos);
 
             // Initialization when animation starts
-            if (animationType == TYPE_FIRST) {
-                mStartTime = SystemClock.uptimeMillis();
+            if (mIsFirstFrame) {
+                mIsFirstFrame = false;
+                mStartTime = frameTimeMillis;
                 mStartAlpha = backgroundView.getAlpha();
                 mStartTransitionY = trashIconRootView.getTranslationY();
                 mStartedCode = animationCode;
@@ -704,36 +868,43 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
                 }
             }
             // elapsed time
-            final float elapsedTime = SystemClock.uptimeMillis() - mStartTime;
+            mElapsedTime = frameTimeMillis - mStartTime;
+            final float elapsedTime = mElapsedTime;
 
             // display animation
             if (animationCode == ANIMATION_OPEN) {
                 final float currentAlpha = backgroundView.getAlpha();
+                final boolean isFadeEnabled = trashView.mIsBackgroundFadeEnabled;
                 // If the maximum alpha value is not reached
-                if (currentAlpha < MAX_ALPHA) {
+                if (isFadeEnabled && currentAlpha < MAX_ALPHA) {
                     final float alphaTimeRate = Math.min(elapsedTime / BACKGROUND_DURATION_MILLIS, 1.0f);
                     final float alpha = Math.min(mStartAlpha + alphaTimeRate, MAX_ALPHA);
                     backgroundView.setAlpha(alpha);
                 }
 
                 // Animation starts if DelayTime is exceeded
+                float translationYTimeRate = 0.0f;
                 if (elapsedTime >= TRASH_OPEN_START_DELAY_MILLIS) {
                     final float screenHeight = trashView.mMetrics.heightPixels;
                     // 0% and 100% calculation when the icon protrudes all to the left and right
-                    final float positionX = trashViewX + (mTargetPositionX + mTargetWidth) / (screenWidth + mTargetWidth) * mTrashIconLimitPosition.width() + mTrashIconLimitPosition.left;
+                    final float positionX = TrashGeometry.followPositionX(trashViewX, mTargetPositionX, mTargetWidth, screenWidth,
+                            mTrashIconLimitPosition.left, mTrashIconLimitPosition.width());
                     // Y-coordinate animation and follow-up of delete icon (negative upward direction)
-                    // targetPositionYRate is 0% when the target Y coordinate is completely off screen, and 100% after half of the screen
-                    // stickyPositionY moves to the upper end with the lower end of the movement limit as the origin. mMoveStickyRange is the sticky range
                     // Calculate positionY to move over time
-                    final float targetPositionYRate = Math.min(2 * (mTargetPositionY + mTargetHeight) / (screenHeight + mTargetHeight), 1.0f);
-                    final float stickyPositionY = mMoveStickyYRange * targetPositionYRate + mTrashIconLimitPosition.height() - mMoveStickyYRange;
-                    final float translationYTimeRate = Math.min((elapsedTime - TRASH_OPEN_START_DELAY_MILLIS) / TRASH_OPEN_DURATION_MILLIS, 1.0f);
-                    final float positionY = mTrashIconLimitPosition.bottom - stickyPositionY * mOvershootInterpolator.getInterpolation(translationYTimeRate);
+                    translationYTimeRate = Math.min((elapsedTime - TRASH_OPEN_START_DELAY_MILLIS) / TRASH_OPEN_DURATION_MILLIS, 1.0f);
+                    final float positionY = TrashGeometry.followPositionY(mTargetPositionY, mTargetHeight, screenHeight, mMoveStickyYRange,
+                            mTrashIconLimitPosition.height(), mTrashIconLimitPosition.bottom,
+                            mOvershootInterpolator.getInterpolation(translationYTimeRate));
                     trashIconRootView.setTranslationX(positionX);
                     trashIconRootView.setTranslationY(positionY);
-                    // clear drag view garbage
                 }
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                // Keep following the target; sleep once settled until it moves again
+                final boolean isSettled = (!isFadeEnabled || backgroundView.getAlpha() >= MAX_ALPHA)
+                        && translationYTimeRate >= 1.0f;
+                if (!isSettled || mIsTargetMoved) {
+                    scheduleFrame();
+                }
+                mIsTargetMoved = false;
             }
             // hide animation
             else if (animationCode == ANIMATION_CLOSE) {
@@ -748,11 +919,12 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
                 if (alphaElapseTimeRate < 1.0f || translationYTimeRate < 1.0f) {
                     final float position = mStartTransitionY + mTrashIconLimitPosition.height() * translationYTimeRate;
                     trashIconRootView.setTranslationY(position);
-                    sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                    scheduleFrame();
                 } else {
                     // Force position adjustment
                     trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
                     mStartedCode = ANIMATION_NONE;
+                    mRunningCode = ANIMATION_NONE;
                     if (listener != null) {
                         listener.onTrashAnimationEnd(ANIMATION_CLOSE);
                     }
@@ -763,6 +935,7 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
                 backgroundView.setAlpha(0.0f);
                 trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
                 mStartedCode = ANIMATION_NONE;
+                mRunningCode = ANIMATION_NONE;
                 if (listener != null) {
                     listener.onTrashAnimationEnd(ANIMATION_FORCE_CLOSE);
                 }
@@ -770,37 +943,62 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
         }
 
         /**
-         * Send an animated message.
+         * Start an animation after a delay.
          *
          * @param animation   ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
-         * @param delayMillis Message sent time
+         * @param delayMillis delay before the first frame
          */
-        void sendAnimationMessageDelayed(int animation, long delayMillis) {
-            sendMessageAtTime(newMessage(animation, TYPE_FIRST), SystemClock.uptimeMillis() + delayMillis);
+        void startDelayed(int animation, long delayMillis) {
+            mChoreographer.removeFrameCallback(mDelayedStartCallback);
+            mPendingCode = animation;
+            mChoreographer.postFrameCallbackDelayed(mDelayedStartCallback, delayMillis);
         }
 
         /**
-         * Send an animated message.
+         * Start an animation on the next frame.
          *
          * @param animation ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
          */
-        void sendAnimationMessage(int animation) {
-            sendMessage(newMessage(animation, TYPE_FIRST));
+        void start(int animation) {
+            // The window is only attached while the trash is shown (a drag or a long press)
+            final BubbleTrash trashView = mTrashView.get();
+            if (animation == ANIMATION_OPEN && trashView != null && !trashView.isTrashDisabled()) {
+                trashView.attachToWindow();
+            }
+            mRunningCode = animation;
+            mIsFirstFrame = true;
+            mElapsedTime = 0;
+            scheduleFrame();
         }
 
         /**
-         * Generate a message to send.
+         * Cancel a pending or running animation.
+         * The started state is kept, the same as removing its messages from a Handler.
          *
          * @param animation ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
-         * @param type      TYPE_FIRST,TYPE_UPDATE
-         * @return Message
-         */
-        @NonNull
-        private static Message newMessage(int animation, int type) {
-            final Message message = Message.obtain();
-            message.what = animation;
-            message.arg1 = type;
-            return message;
+         */
+        void cancel(int animation) {
+            if (mPendingCode == animation) {
+                mPendingCode = ANIMATION_NONE;
+                mChoreographer.removeFrameCallback(mDelayedStartCallback);
+            }
+            if (mRunningCode == animation) {
+                mRunningCode = ANIMATION_NONE;
+                if (mIsFrameScheduled) {
+                    mIsFrameScheduled = false;
+                    mChoreographer.removeFrameCallback(this);
+                }
+            }
+        }
+
+        /**
+         * Post a frame callback unless one is already posted.
+         */
+        private void scheduleFrame() {
+            if (!mIsFrameScheduled) {
+                mIsFrameScheduled = true;
+                mChoreographer.postFrameCallback(this);
+            }
         }
 
         /**
@@ -813,6 +1011,15 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
             return mStartedCode == animationCode;
         }
 
+        /**
+         * Checks if the open animation has shown the delete icon.
+         *
+         * @return true if the delete icon is ready to capture the target
+         */
+        boolean isOpenFinished() {
+            return mStartedCode == ANIMATION_OPEN && mElapsedTime > TRASH_OPEN_DURATION_MILLIS;
+        }
+
         /**
          * Update the location information of the tracking target.
          *
@@ -820,8 +1027,16 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
          * @param y Y coordinate of follow target
          */
         void updateTargetPosition(float x, float y) {
+            if (mTargetPositionX == x && mTargetPositionY == y) {
+                return;
+            }
             mTargetPositionX = x;
             mTargetPositionY = y;
+            mIsTargetMoved = true;
+            // Wake up a settled open animation
+            if (mRunningCode == ANIMATION_OPEN) {
+                scheduleFrame();
+            }
         }
 
         /**
@@ -849,6 +1064,12 @@ class BubbleTrash extends BubbleBaseLayout implements ViewTreeObserver.OnPreDraw
 
             // Set Y-axis tracking range based on background size
             mMoveStickyYRange = backgroundHeight * 0.20f;
+
+            // Re-layout a settled open animation
+            if (mRunningCode == ANIMATION_OPEN) {
+                mIsTargetMoved = true;
+                scheduleFrame();
+            }
         }
     }
 }
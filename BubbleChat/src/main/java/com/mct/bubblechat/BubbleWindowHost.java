@@ -0,0 +1,264 @@
+package com.mct.bubblechat;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.os.Build;
+import android.view.AttachedSurfaceControl;
+import android.view.Gravity;
+import android.view.View;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * A single overlay window that composites every BubbleLayout as a child view.<br/>
+ * Each bubble keeps its own WindowManager.LayoutParams as its logical screen position,
+ * the host converts it to a view translation.<br/>
+ * The host window is shrunk to the bounding box of the bubbles on every API level,
+ * so its surface stays small and touches outside the box reach the app underneath.
+ * On API 34+ the touchable region also trims the gaps between resting bubbles inside the box.
+ */
+@SuppressLint("ViewConstructor")
+class BubbleWindowHost extends BubbleBaseLayout {
+
+    /**
+     * Bounding box of the bubbles (screen coordinates)
+     */
+    private final Rect mBounds;
+
+    /**
+     * Bubbles at rest (window coordinates)
+     */
+    private final Region mTouchableRegion;
+
+    /**
+     * Region last handed to the surface
+     */
+    private final Region mAppliedTouchableRegion;
+
+    /**
+     * True while a bubble moves
+     */
+    private boolean isMoving;
+
+    /**
+     * True if a touchable region is set on the surface
+     */
+    private boolean hasTouchableRegion;
+
+    BubbleWindowHost(Context context) {
+        super(context);
+        mBounds = new Rect();
+        mTouchableRegion = new Region();
+        mAppliedTouchableRegion = new Region();
+
+        WindowManager.LayoutParams mParams = new WindowManager.LayoutParams();
+        mParams.width = 1;
+        mParams.height = 1;
+        mParams.type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY
+                : WindowManager.LayoutParams.TYPE_PHONE;
+        mParams.flags = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
+                WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS |
+                WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL;
+        mParams.format = PixelFormat.TRANSLUCENT;
+        mParams.gravity = Gravity.START | Gravity.TOP;
+
+        setViewParams(mParams);
+        setClipChildren(false);
+        setClipToPadding(false);
+    }
+
+    /**
+     * Add a bubble as a child and attach the host window if needed.
+     *
+     * @param bubble bubble to composite
+     */
+    void addBubble(@NonNull BubbleBaseLayout bubble) {
+        final WindowManager.LayoutParams bubbleParams = bubble.getViewParams();
+        addView(bubble, new LayoutParams(bubbleParams.width, bubbleParams.height));
+        attachToWindow();
+        requestUpdateLayoutParams();
+    }
+
+    /**
+     * Remove a bubble and detach the host window once it is empty.
+     *
+     * @param bubble bubble to remove
+     */
+    void removeBubble(@NonNull BubbleBaseLayout bubble) {
+        removeView(bubble);
+        if (getChildCount() == 0) {
+            detachFromWindow();
+        } else {
+            requestUpdateLayoutParams();
+        }
+    }
+
+    /**
+     * Let the whole window take touches while a bubble moves,
+     * so the touchable region is not handed to the surface on every frame.
+     *
+     * @param moving true while a bubble is dragged or animated
+     */
+    void setMoving(boolean moving) {
+        if (isMoving != moving) {
+            isMoving = moving;
+            requestUpdateLayoutParams();
+        }
+    }
+
+    /**
+     * Children are measured against the screen, not against the host window,
+     * because the window itself is sized from the children.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int screenWidth = getResources().getDisplayMetrics().widthPixels;
+        final int screenHeight = getResources().getDisplayMetrics().heightPixels;
+        final int parentWidthSpec = MeasureSpec.makeMeasureSpec(screenWidth, MeasureSpec.AT_MOST);
+        final int parentHeightSpec = MeasureSpec.makeMeasureSpec(screenHeight, MeasureSpec.AT_MOST);
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            child.measure(getChildMeasureSpec(parentWidthSpec, 0, lp.width),
+                    getChildMeasureSpec(parentHeightSpec, 0, lp.height));
+        }
+        setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), getDefaultSize(0, heightMeasureSpec));
+    }
+
+    /**
+     * Children sit at the origin and are placed with translations.
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() != GONE) {
+                child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+            }
+        }
+        // child sizes are known now
+        requestUpdateLayoutParams();
+    }
+
+    /**
+     * Update the host window only if its bounds change (one WindowManager update at most),
+     * move every bubble with a view translation and trim the touches to the bubbles (API 34+).
+     */
+    @Override
+    public void updateLayoutParams() {
+        final WindowManager.LayoutParams params = getViewParams();
+        boolean changed = false;
+        if (computeBounds(mBounds)) {
+            changed = setWindowBounds(params, mBounds.left, mBounds.top, mBounds.width(), mBounds.height());
+        }
+        // a refresh rate vote is committed even if the bounds did not change
+        if (consumeRefreshRateChange() | changed) {
+            super.updateLayoutParams();
+        }
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final BubbleBaseLayout bubble = (BubbleBaseLayout) getChildAt(i);
+            final WindowManager.LayoutParams bubbleParams = bubble.getViewParams();
+            bubble.setTranslationX(bubbleParams.x - params.x);
+            bubble.setTranslationY(bubbleParams.y - params.y);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            updateTouchableRegion(params);
+        }
+    }
+
+    private static boolean setWindowBounds(@NonNull WindowManager.LayoutParams params,
+                                           int x, int y, int width, int height) {
+        if (params.x == x && params.y == y && params.width == width && params.height == height) {
+            return false;
+        }
+        params.x = x;
+        params.y = y;
+        params.width = width;
+        params.height = height;
+        return true;
+    }
+
+    /**
+     * Limit the touches inside the bounding box to the resting bubbles,
+     * the whole window takes touches while a bubble moves.
+     * The region is only handed to the surface when it changes: every change costs a traversal.
+     *
+     * @param params host window's LayoutParams
+     */
+    @RequiresApi(Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+    private void updateTouchableRegion(@NonNull WindowManager.LayoutParams params) {
+        if (isMoving) {
+            if (hasTouchableRegion && Api34Impl.setTouchableRegion(this, null)) {
+                hasTouchableRegion = false;
+            }
+            return;
+        }
+        mTouchableRegion.setEmpty();
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final BubbleBaseLayout bubble = (BubbleBaseLayout) getChildAt(i);
+            if (bubble.getVisibility() == GONE) {
+                continue;
+            }
+            final WindowManager.LayoutParams bubbleParams = bubble.getViewParams();
+            final int left = bubbleParams.x - params.x;
+            final int top = bubbleParams.y - params.y;
+            mTouchableRegion.op(left, top, left + bubble.getWidth(), top + bubble.getHeight(), Region.Op.UNION);
+        }
+        if ((!hasTouchableRegion || !mTouchableRegion.equals(mAppliedTouchableRegion))
+                && Api34Impl.setTouchableRegion(this, mTouchableRegion)) {
+            hasTouchableRegion = true;
+            mAppliedTouchableRegion.set(mTouchableRegion);
+        }
+    }
+
+    /**
+     * Compute the union of the visible bubbles.
+     *
+     * @param outRect union (screen coordinates)
+     * @return false if there is no visible bubble with a size
+     */
+    private boolean computeBounds(@NonNull Rect outRect) {
+        outRect.setEmpty();
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final BubbleBaseLayout bubble = (BubbleBaseLayout) getChildAt(i);
+            if (bubble.getVisibility() == GONE || bubble.getWidth() == 0 || bubble.getHeight() == 0) {
+                continue;
+            }
+            final WindowManager.LayoutParams bubbleParams = bubble.getViewParams();
+            outRect.union(bubbleParams.x, bubbleParams.y,
+                    bubbleParams.x + bubble.getWidth(), bubbleParams.y + bubble.getHeight());
+        }
+        return !outRect.isEmpty();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+    private static final class Api34Impl {
+
+        /**
+         * @return false if the view is not attached to a window yet
+         */
+        static boolean setTouchableRegion(View view, @Nullable Region region) {
+            final AttachedSurfaceControl surface = view.getRootSurfaceControl();
+            if (surface == null) {
+                return false;
+            }
+            surface.setTouchableRegion(region);
+            return true;
+        }
+    }
+}
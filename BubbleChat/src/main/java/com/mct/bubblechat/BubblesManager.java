@@ -1,6 +1,5 @@
 package com.mct.bubblechat;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Configuration;
@@ -9,7 +8,12 @@ import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Trace;
 import android.util.DisplayMetrics;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.DisplayCutout;
 import android.view.MotionEvent;
 import android.view.View;
@@ -18,15 +22,17 @@ import android.view.WindowManager;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.dynamicanimation.animation.SpringForce;
 
 import com.mct.bubblechat.BubbleTrash.AnimationState;
 import com.mct.touchutils.TouchUtils.FlingMoveToWallListener;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class BubblesManager implements BubbleLayoutListener, TrashViewListener, ScreenChangedListener {
+public class BubblesManager implements BubbleLayoutListener, TrashViewListener, ScreenChangedListener,
+        PowerStateMonitor.Listener {
 
     /**
      * WindowManager
@@ -35,9 +41,20 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
 
 
     /**
-     * A list of BubbleViews attached to a Window
+     * BubbleViews by id, with or without a Window (see {@link #setMaxAttachedBubbles(int)}).
+     * The stack order is kept by {@link #mFollowerChain}
      */
-    private final List<BubbleLayout> mBubbles;
+    private final Map<Integer, BubbleLayout> mBubbles;
+
+    /**
+     * Id of the next added bubble
+     */
+    private int mNextBubbleId;
+
+    /**
+     * Number of bubbles from the top of the stack that hold a window (stack virtualization)
+     */
+    private int mMaxAttachedBubbles;
 
     /**
      * Bubble target on top
@@ -49,6 +66,11 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
      */
     private final FullscreenObserverView mObserverView;
 
+    /**
+     * True if the observer window is attached
+     */
+    private boolean isObserverAttach;
+
     /**
      * The View that removes the Bubble.
      */
@@ -69,18 +91,157 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
     private final Rect mSafeInsetRect;
 
     /**
-     * State when bubble move. True if bubble intersect trash
+     * Center of the delete icon
+     */
+    private final Point mTrashPosition;
+
+    /**
+     * Trace sections of the startup and gesture paths (systrace / Perfetto)
+     */
+    private static final String TRACE_ADD_BUBBLE = "BubbleChat#addBubble";
+    private static final String TRACE_DOWN = "BubbleChat#down";
+    private static final String TRACE_DRAG = "BubbleChat#drag";
+    private static final String TRACE_DROP = "BubbleChat#drop";
+    private static final String TRACE_DISPOSE = "BubbleChat#dispose";
+
+    /**
+     * Side of a cell of the drop target index (dp), about the size of a bubble
+     */
+    private static final int DROP_TARGET_CELL_SIZE_DP = 96;
+
+    /**
+     * Stiffness of the spring carrying a flung bubble into the trash
+     */
+    private static final float TRASH_FLING_STIFFNESS = 300f;
+
+    /**
+     * Drop targets (trash included) by screen cell
+     */
+    private final DropTargetIndex mDropTargets;
+
+    /**
+     * The trash as a drop target
+     */
+    private final DropTarget mTrashTarget;
+
+    /**
+     * Target that has captured the dragged bubble, null if none
+     */
+    private DropTarget mActiveTarget;
+
+    /**
+     * True between the touch down of the top bubble and its release
+     */
+    private boolean isGestureActive;
+
+    /**
+     * Shared window for all bubbles (single-window mode), null if each bubble has its own window
+     */
+    private BubbleWindowHost mWindowHost;
+
+    /**
+     * Context
+     */
+    private final Context mContext;
+
+    /**
+     * Drives followers stacked under the target bubble
+     */
+    private final FollowerChain mFollowerChain;
+
+    /**
+     * Haptic feedback, null until the first snap if the default is used
+     */
+    private BubbleHapticFeedback mHapticFeedback;
+
+    /**
+     * True if snaps perform a haptic feedback
+     */
+    private boolean isHapticFeedbackEnabled;
+
+    /**
+     * Gesture metrics (opt-in), null if disabled
+     */
+    private GestureTracker mGestureTracker;
+
+    /**
+     * Battery saver and thermal status, watched while bubbles are shown
+     */
+    private final PowerStateMonitor mPowerMonitor;
+
+    /**
+     * Motion profile set by the app, null to follow the power state
      */
-    private boolean isIntersect;
+    private MotionProfile mMotionProfileOverride;
+
+    /**
+     * Motion profile in use
+     */
+    private MotionProfile mMotionProfile;
+
+    /**
+     * Choreographer of the main thread
+     */
+    private final Choreographer mChoreographer;
+
+    /**
+     * Drops the high refresh rate after a release if the top bubble is not moving
+     */
+    private final Choreographer.FrameCallback mIdleRefreshRateCheck;
+
+    /**
+     * Pending {@link #prewarm()} work, null if none
+     */
+    private Prewarmer mPrewarmer;
+
+    /**
+     * Bubble built by {@link #prewarm()}, taken by the next {@link #addBubble(View, Options)}
+     */
+    private BubbleLayout mSpareBubble;
 
     public BubblesManager(@NonNull Context context) {
+        mContext = context;
         mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        mBubbles = new ArrayList<>();
+        mBubbles = new HashMap<>();
+        mNextBubbleId = 1;
+        mMaxAttachedBubbles = Integer.MAX_VALUE;
+        mFollowerChain = new FollowerChain();
         mObserverView = new FullscreenObserverView(context, this);
         mTrashView = new BubbleTrash(context);
         mBubbleViewRect = new Rect();
         mTrashViewRect = new Rect();
         mSafeInsetRect = new Rect();
+        mTrashPosition = new Point();
+        mTrashView.setTrashViewListener(this);
+        isHapticFeedbackEnabled = true;
+        mPowerMonitor = new PowerStateMonitor(context, this);
+        mChoreographer = Choreographer.getInstance();
+        mIdleRefreshRateCheck = frameTimeNanos -> {
+            if (!isGestureActive && (mTargetView == null || !mTargetView.isMoving())) {
+                setBubblesMoving(false);
+            }
+        };
+        mMotionProfile = MotionProfile.FULL;
+        final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        mDropTargets = new DropTargetIndex((int) (DROP_TARGET_CELL_SIZE_DP * metrics.density));
+        mDropTargets.setBounds(metrics.widthPixels, metrics.heightPixels);
+        mTrashTarget = new DropTarget(new DropTargetListener() {
+            @Override
+            public void onBubbleEnter(@NonNull DropTarget target, int bubbleId) {
+                mTrashView.setScaleTrashIcon(true);
+            }
+
+            @Override
+            public void onBubbleExit(@NonNull DropTarget target, int bubbleId) {
+                mTrashView.setScaleTrashIcon(false);
+            }
+
+            @Override
+            public void onBubbleDrop(@NonNull DropTarget target, int bubbleId) {
+                removeDroppedBubble(bubbleId);
+            }
+        });
+        mDropTargets.add(mTrashTarget);
         setFixedTrashIconImage(R.drawable.ic_trash_fixed);
         setActionTrashIconImage(R.drawable.ic_trash_action);
     }
@@ -121,9 +282,125 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
         mTrashView.setActionTrashIconImage(drawable);
     }
 
+    /**
+     * Draw all bubbles as child views inside one overlay window, moved with view translations.<br/>
+     * This saves one surface and one WindowManager update per bubble.
+     * The touchable region of the shared window is the bounding box of the bubbles.
+     * INFO: Must be called before the first bubble is added.
+     *
+     * @param enabled true to use a single window
+     */
+    public void setSingleWindowMode(boolean enabled) {
+        if (!mBubbles.isEmpty()) {
+            throw new IllegalStateException("Single window mode must be set before adding bubbles");
+        }
+        mWindowHost = enabled ? new BubbleWindowHost(mContext) : null;
+        if (mWindowHost != null) {
+            mWindowHost.setGestureTracker(mGestureTracker);
+        }
+    }
+
+    /**
+     * Virtualize the stack: only the top bubbles hold a window, the ones below are detached
+     * and attached again when bubbles above them are removed.<br/>
+     * Hidden followers cost no surface, which matters once many conversations pile up.
+     *
+     * @param count number of attached bubbles (at least 1), {@link Integer#MAX_VALUE} to attach all
+     */
+    public void setMaxAttachedBubbles(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one bubble must be attached");
+        }
+        mMaxAttachedBubbles = count;
+        updateAttachedBubbles();
+    }
+
+    /**
+     * Register a drop target. The dragged bubble snaps to the closest target that captures it.
+     *
+     * @param target drop target
+     */
+    public void addDropTarget(@NonNull DropTarget target) {
+        mDropTargets.add(target);
+    }
+
+    /**
+     * Unregister a drop target.
+     *
+     * @param target drop target
+     */
+    public void removeDropTarget(@NonNull DropTarget target) {
+        if (target == mActiveTarget) {
+            exitActiveTarget();
+        }
+        mDropTargets.remove(target);
+    }
+
+    /**
+     * Force the animation quality.<br/>
+     * By default {@link MotionProfile#DEGRADED} is used while battery saver is on or the device
+     * is thermally throttled (API 29+), and {@link MotionProfile#FULL} otherwise.
+     *
+     * @param profile motion profile, or null to follow the power state
+     */
+    public void setMotionProfile(@Nullable MotionProfile profile) {
+        mMotionProfileOverride = profile;
+        applyMotionProfile();
+    }
+
+    /**
+     * @return motion profile in use
+     */
+    @NonNull
+    public MotionProfile getMotionProfile() {
+        return mMotionProfile;
+    }
+
+    /**
+     * Replace the haptic feedback (default: {@link VibratorHapticFeedback}).
+     *
+     * @param feedback haptic feedback, or null to disable
+     */
+    public void setHapticFeedback(@Nullable BubbleHapticFeedback feedback) {
+        mHapticFeedback = feedback;
+        isHapticFeedbackEnabled = feedback != null;
+    }
+
+    /**
+     * Enable or disable the haptic feedback (default: enabled).
+     * The default {@link VibratorHapticFeedback} and its thread are only created on the first snap.
+     *
+     * @param enabled true to vibrate on snaps
+     */
+    public void setHapticFeedbackEnabled(boolean enabled) {
+        isHapticFeedbackEnabled = enabled;
+    }
+
+    /**
+     * Report frame timing and window IPC of each gesture (down → release).
+     *
+     * @param listener listener, or null to disable
+     */
+    public void setMetricsListener(BubbleMetricsListener listener) {
+        if (mGestureTracker != null) {
+            mGestureTracker.cancel();
+        }
+        mGestureTracker = listener != null ? new GestureTracker(listener) : null;
+        mTrashView.setGestureTracker(mGestureTracker);
+        if (mWindowHost != null) {
+            mWindowHost.setGestureTracker(mGestureTracker);
+        }
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next) {
+            link.bubble.setGestureTracker(mGestureTracker);
+        }
+    }
+
     public void setBubbleVisibility(int visibility) {
-        for (BubbleLayout bubble : mBubbles) {
-            bubble.setVisibility(visibility);
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next) {
+            link.bubble.setVisibility(visibility);
+        }
+        if (mWindowHost != null) {
+            mWindowHost.setVisibility(visibility);
         }
     }
 
@@ -131,9 +408,52 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
         return mBubbles.isEmpty();
     }
 
-    @SuppressLint("ClickableViewAccessibility")
-    public void addBubble(@NonNull View view, @NonNull Options options) {
-        final BubbleLayout bubble = new BubbleLayout(view.getContext());
+    /**
+     * Add a bubble that only shows its avatar ({@link Options#avatarResId}).
+     *
+     * @param options options, with a floatingViewWidth and floatingViewHeight in pixels
+     * @return id of the bubble
+     * @throws IllegalArgumentException if the size is not set (an empty wrap_content bubble would cover the screen)
+     * @see #addBubble(View, Options)
+     */
+    public int addBubble(@NonNull Options options) {
+        if (!hasFixedSize(options)) {
+            throw new IllegalArgumentException("A bubble without a view needs floatingViewWidth and floatingViewHeight");
+        }
+        return addBubble(new View(mContext), options);
+    }
+
+    /**
+     * Add a bubble on top of the stack. The previous top bubble becomes its first follower.
+     *
+     * @param view    floating view
+     * @param options options
+     * @return id of the bubble, see {@link #getBubble(int)} and {@link #removeBubble(int)}
+     * @throws IllegalArgumentException if an avatar is set without a floatingViewWidth and floatingViewHeight
+     */
+    public int addBubble(@NonNull View view, @NonNull Options options) {
+        if (options.avatarResId != 0 && !hasFixedSize(options)) {
+            throw new IllegalArgumentException("An avatar is decoded at floatingViewWidth x floatingViewHeight, set both");
+        }
+        Trace.beginSection(TRACE_ADD_BUBBLE);
+        try {
+            return attachNewBubble(view, options);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private static boolean hasFixedSize(@NonNull Options options) {
+        return options.floatingViewWidth > 0 && options.floatingViewHeight > 0;
+    }
+
+    private int attachNewBubble(@NonNull View view, @NonNull Options options) {
+        final int id = mNextBubbleId++;
+        final BubbleLayout bubble = mSpareBubble != null && mSpareBubble.getContext() == view.getContext()
+                ? mSpareBubble
+                : new BubbleLayout(view.getContext());
+        mSpareBubble = null;
+        bubble.setBubbleId(id);
         bubble.setLayoutListener(this);
         bubble.setOverMargin(options.overMargin);
         bubble.setInitCoords(options.initX, options.initY);
@@ -143,24 +463,97 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
         bubble.setOnBubbleRemoveListener(options.bubbleRemoveListener);
         bubble.setOnClickListener(options.onClickListener);
         bubble.setSafeInsetRect(mSafeInsetRect);
+        bubble.setFollowerChain(mFollowerChain);
+        bubble.setFollowerLink(mFollowerChain.addLeader(bubble, options.followerLagMillis));
         // set BubbleLayout size
         bubble.addView(view, options.floatingViewWidth, options.floatingViewHeight);
+        bubble.setWindowHost(mWindowHost);
+        bubble.setGestureTracker(mGestureTracker);
+        bubble.setMotionProfile(mMotionProfile);
+        if (options.avatarResId != 0) {
+            // decoded off the main thread, a cached avatar replaces the placeholder right away
+            bubble.setAvatarPlaceholder();
+            AvatarLoader.getInstance().load(mContext.getResources(), options.avatarKey, options.avatarResId,
+                    options.floatingViewWidth, options.floatingViewHeight, bubble);
+        }
         bubble.attachToWindow();
 
-        if (mBubbles.isEmpty()) {
-            mWindowManager.addView(mObserverView, mObserverView.getWindowLayoutParams());
+        if (mTargetView == null) {
+            if (isObserverAttach) {
+                // Attached by prewarm(): its first notification had no bubble to update
+                mObserverView.invalidateScreen();
+            } else {
+                attachObserver();
+            }
         } else {
+            // The old top bubble leaves the gesture: end its drag and drop its refresh rate vote,
+            // it no longer reports release or rest
+            cancelGesture();
+            setBubblesMoving(false);
             bubble.setUpdateTarget(mTargetView);
             mTargetView.setLayoutListener(null);
-            mTargetView.setOnTouchListener(null);
-        }
-        if (!mBubbles.contains(bubble)) {
-            mBubbles.add(bubble);
+            mTargetView.setDraggable(false);
         }
+        mBubbles.put(id, bubble);
         mTargetView = bubble;
-        mTrashView.setTrashViewListener(this);
-        mTrashView.detachFromWindow();
-        mTrashView.attachToWindow();
+        updateAttachedBubbles();
+        return id;
+    }
+
+    /**
+     * Find the floating view of a bubble.
+     *
+     * @param id id returned by {@link #addBubble(View, Options)}
+     * @return floating view, or null if the bubble has been removed
+     */
+    public View getBubble(int id) {
+        final BubbleLayout bubble = mBubbles.get(id);
+        return bubble != null ? bubble.getChildAt(0) : null;
+    }
+
+    /**
+     * Show an unread count over a bubble, cheap enough to be updated many times a second.
+     *
+     * @param id    id returned by {@link #addBubble(View, Options)}
+     * @param count unread count, 0 to hide the badge
+     * @return false if the id is unknown
+     */
+    public boolean setBadgeCount(int id, int count) {
+        final BubbleLayout bubble = mBubbles.get(id);
+        if (bubble == null) {
+            return false;
+        }
+        bubble.setBadgeCount(count);
+        return true;
+    }
+
+    /**
+     * Remove a bubble. If it was on top of the stack, the bubble below it becomes draggable.
+     *
+     * @param id id returned by {@link #addBubble(View, Options)}
+     * @return true if the bubble was removed, false if the id is unknown
+     */
+    public boolean removeBubble(int id) {
+        final BubbleLayout bubble = mBubbles.remove(id);
+        if (bubble == null) {
+            return false;
+        }
+        if (bubble == mTargetView) {
+            cancelGesture();
+        }
+        removeBubble(bubble, true);
+        updateTarget();
+        updateAttachedBubbles();
+        return true;
+    }
+
+    /**
+     * Remove every bubble.<br/>
+     * Window removals are batched: the chain is dropped once and each window dies on its next traversal
+     * instead of being torn down synchronously one after another.
+     */
+    public void removeAll() {
+        removeAll(false);
     }
 
     /**
@@ -176,26 +569,47 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
             mSafeInsetRect.set(safeInsetRect);
         }
 
-        final int size = mBubbles.size();
-        if (size == 0) {
+        if (mBubbles.isEmpty()) {
             return;
         }
         // update floating view
-        for (int i = 0; i < size; i++) {
-            final BubbleLayout bubble = mBubbles.get(i);
-            bubble.setSafeInsetRect(mSafeInsetRect);
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next) {
+            link.bubble.setSafeInsetRect(mSafeInsetRect);
+        }
+        // recompute on the next frame even though the screen itself has not changed
+        mObserverView.invalidateScreen();
+    }
+
+    /**
+     * Build what the first bubble needs ahead of time, while the main thread is idle:
+     * a spare bubble, the measured trash hierarchy and the screen observer window.
+     * Then the first {@link #addBubble(View, Options)} only attaches one window.<br/>
+     * Each step runs in its own idle pass, so a frame is never delayed by more than one step.
+     * INFO: Must be called from the main thread, e.g. in Service#onCreate, once the overlay permission is granted.
+     */
+    public void prewarm() {
+        if (mPrewarmer != null || !mBubbles.isEmpty()) {
+            return;
         }
-        // dirty hack
-        mObserverView.onGlobalLayout();
+        mPrewarmer = new Prewarmer();
+        Looper.myQueue().addIdleHandler(mPrewarmer);
     }
 
     public void dispose() {
-        mWindowManager.removeViewImmediate(mObserverView);
-        mTrashView.detachFromWindow();
-        for (BubbleLayout bubble : mBubbles) {
-            removeBubble(bubble);
+        Trace.beginSection(TRACE_DISPOSE);
+        try {
+            mChoreographer.removeFrameCallback(mIdleRefreshRateCheck);
+            if (mPrewarmer != null) {
+                Looper.myQueue().removeIdleHandler(mPrewarmer);
+                mPrewarmer = null;
+            }
+            mSpareBubble = null;
+            removeAll(true);
+            detachObserver();
+            mTrashView.detachFromWindow();
+        } finally {
+            Trace.endSection();
         }
-        mBubbles.clear();
     }
 
     /**
@@ -233,60 +647,119 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
     }
 
     /* --------------------------------- BubbleLayoutListener ----------------------------------- */
+    @Override
+    public void onBubbleDown() {
+        Trace.beginSection(TRACE_DOWN);
+        isGestureActive = true;
+        if (mGestureTracker != null) {
+            mGestureTracker.start(mWindowManager.getDefaultDisplay().getRefreshRate());
+        }
+        notifyTrash(MotionEvent.ACTION_DOWN);
+        setBubblesMoving(true);
+        Trace.endSection();
+        // The whole drag as one async section, a section per move would add work to every event
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_DRAG, mTargetView.getBubbleId());
+        }
+    }
+
     @Override
     public boolean onBubbleMove(Point position) {
-        if (mTrashView.isTrashReady()) {
-            boolean isIntersect = this.isIntersect;
-            boolean isIntersecting = this.isIntersect = isIntersectWithTrash(position);
-            if (isIntersecting && !isIntersect) {
-                Point trashPosition = mTrashView.getTrashPosition();
-                position.set(
-                        trashPosition.x - mTargetView.getWidth() / 2,
-                        trashPosition.y - mTargetView.getHeight() / 2);
-                mTrashView.vibrate();
-                mTrashView.setScaleTrashIcon(true);
-            }
-            if (!isIntersecting && isIntersect) {
-                mTrashView.setScaleTrashIcon(false);
-            }
+        if (mGestureTracker == null) {
+            return handleBubbleMove(position);
         }
-        notifyTrash(MotionEvent.ACTION_MOVE);
-        return isIntersect;
+        final long start = System.nanoTime();
+        final boolean result = handleBubbleMove(position);
+        mGestureTracker.onMoveCallback(System.nanoTime() - start);
+        return result;
     }
 
     @Override
     public boolean onBubbleFling(Point predictPosition) {
-        if (this.isIntersect) {
+        if (mGestureTracker == null) {
+            return handleBubbleFling(predictPosition);
+        }
+        final long start = System.nanoTime();
+        final boolean result = handleBubbleFling(predictPosition);
+        mGestureTracker.onFlingCallback(System.nanoTime() - start);
+        return result;
+    }
+
+    private boolean handleBubbleMove(Point position) {
+        // The trash only captures once it is open
+        refreshTrashTarget(true);
+        final DropTarget target = findDropTarget(position);
+        if (target != mActiveTarget) {
+            exitActiveTarget();
+            if (target != null) {
+                enterTarget(target);
+                snapTo(target, position);
+            }
+        }
+        notifyTrash(MotionEvent.ACTION_MOVE);
+        return mActiveTarget != null;
+    }
+
+    private boolean handleBubbleFling(Point predictPosition) {
+        if (mActiveTarget != null) {
             return false;
         }
-        this.isIntersect = isIntersectWithTrash(predictPosition);
-        if (isIntersect) {
-            Point trashPosition = mTrashView.getTrashPosition();
-            predictPosition.set(
-                    trashPosition.x - mTargetView.getWidth() / 2,
-                    trashPosition.y - mTargetView.getHeight() / 2);
-            mTrashView.vibrate();
-            mTrashView.setScaleTrashIcon(true);
-            notifyTrash(MotionEvent.ACTION_MOVE, predictPosition.x, predictPosition.y);
+        refreshTrashTarget(false);
+        final DropTarget target = findDropTarget(predictPosition);
+        if (target == null) {
+            return false;
         }
-        return this.isIntersect;
+        enterTarget(target);
+        snapTo(target, predictPosition);
+        notifyTrash(MotionEvent.ACTION_MOVE, predictPosition.x, predictPosition.y);
+        return true;
+    }
+
+    @Override
+    public float getSnapStiffness() {
+        return mActiveTarget != null ? mActiveTarget.getMagnetStiffness() : SpringForce.STIFFNESS_MEDIUM;
+    }
+
+    @Override
+    public float getFlingSnapStiffness() {
+        return mActiveTarget == mTrashTarget ? TRASH_FLING_STIFFNESS : getSnapStiffness();
     }
 
     @Override
     public void onBubbleRelease() {
-        if (isIntersect) {
-            isIntersect = false;
-            mBubbles.remove(mTargetView);
-            removeBubble(mTargetView);
-        }
         mTrashView.setScaleTrashIcon(false);
         notifyTrash(MotionEvent.ACTION_UP);
+        if (mGestureTracker != null) {
+            mGestureTracker.finish();
+        }
+        if (isGestureActive) {
+            isGestureActive = false;
+            endDragSection();
+        }
+        if (mActiveTarget != null) {
+            final DropTarget target = mActiveTarget;
+            mActiveTarget = null;
+            target.getListener().onBubbleDrop(target, mTargetView.getBubbleId());
+        }
+        // a tap or a drop does not start the springs, check on the next frame
+        mChoreographer.removeFrameCallback(mIdleRefreshRateCheck);
+        mChoreographer.postFrameCallback(mIdleRefreshRateCheck);
+    }
+
+    @Override
+    public void onBubbleSettled() {
+        if (!isGestureActive) {
+            setBubblesMoving(false);
+        }
     }
 
     /* -------------------------------- TrashViewListener --------------------------------------- */
 
     @Override
     public void onUpdateActionTrashIcon() {
+        if (mTargetView == null) {
+            return;
+        }
         mTrashView.updateActionTrashIcon(mTargetView.getMeasuredWidth(), mTargetView.getMeasuredHeight());
     }
 
@@ -296,21 +769,30 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
 
     @Override
     public void onTrashAnimationEnd(@AnimationState int animationCode) {
+        // Release the trash surface while nobody is dragging
+        if (animationCode == BubbleTrash.ANIMATION_CLOSE || animationCode == BubbleTrash.ANIMATION_FORCE_CLOSE) {
+            mTrashView.detachFromWindow();
+        }
     }
 
     /* -------------------------------- ScreenChangedListener ----------------------------------- */
 
     @Override
     public void onScreenChanged(@NonNull Rect windowRect, int visibility) {
+        if (mTargetView == null) {
+            return;
+        }
+        // the drop target grid covers the (possibly rotated) screen
+        final DisplayMetrics metrics = mContext.getResources().getDisplayMetrics();
+        mDropTargets.setBounds(metrics.widthPixels, metrics.heightPixels);
         // detect status bar
         final boolean isHideStatusBar = windowRect.top == 0;
         // detect navigation bar
         final boolean isHideNavigationBar;
         if (visibility == FullscreenObserverView.NO_LAST_VISIBILITY) {
             // At the first it can not get the correct value, so do special processing
-            DisplayMetrics mDisplayMetrics = new DisplayMetrics();
-            mWindowManager.getDefaultDisplay().getRealMetrics(mDisplayMetrics);
-            isHideNavigationBar = windowRect.width() - mDisplayMetrics.widthPixels == 0 && windowRect.bottom - mDisplayMetrics.heightPixels == 0;
+            final SystemUiMetrics systemUi = SystemUiMetrics.get(mContext);
+            isHideNavigationBar = windowRect.width() - systemUi.realWidthPixels == 0 && windowRect.bottom - systemUi.realHeightPixels == 0;
         } else {
             isHideNavigationBar = (visibility & View.SYSTEM_UI_FLAG_HIDE_NAVIGATION) == View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
         }
@@ -318,36 +800,276 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
         // update BubbleLayout layout
         mTargetView.onUpdateSystemLayout(isHideStatusBar, isHideNavigationBar, isPortrait, windowRect);
 
-        for (BubbleLayout bubble : mBubbles) {
+        // followers take the new limits and position in the same pass
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next) {
+            final BubbleLayout bubble = link.bubble;
             if (bubble == mTargetView) {
                 continue;
             }
-            bubble.postDelayed(() -> {
-                bubble.getViewParams().x = mTargetView.getViewParams().x;
-                bubble.getViewParams().y = mTargetView.getViewParams().y;
-                bubble.updateLayoutParams();
-            }, 50);
+            // detached bubbles (virtualized stack) are synced when attached again
+            if (!bubble.isAttach()) {
+                break;
+            }
+            bubble.syncPosition(mTargetView);
         }
     }
 
+    /* ------------------------------ PowerStateMonitor.Listener ------------------------------- */
+
+    @Override
+    public void onPowerStateChanged(boolean isConstrained) {
+        applyMotionProfile();
+    }
+
     /* ----------------------------------- private area ----------------------------------------- */
 
-    private boolean isIntersectWithTrash(Point position) {
-        // If disabled, overlap judgment is not performed.
-        if (mTrashView.isTrashDisabled()) {
-            return false;
-        }
+    /**
+     * Sync the trash target with the trash, which follows the bubble.
+     * It is only re-indexed when its hit-box changes cells.
+     *
+     * @param requireReady true if the trash only captures once its open animation has finished
+     */
+    private void refreshTrashTarget(boolean requireReady) {
         // INFO:TrashView and BubbleLayout should have the same Gravity
         mTrashView.getWindowDrawingRect(mTrashViewRect);
+        mTrashView.getTrashPosition(mTrashPosition);
+        mTrashTarget.setHitRect(mTrashViewRect.left, mTrashViewRect.top, mTrashViewRect.right, mTrashViewRect.bottom)
+                .setSnapPoint(mTrashPosition.x, mTrashPosition.y);
+        // If disabled, overlap judgment is not performed.
+        // Not laid out yet (attached lazily): the hit-box would sit in the top-left corner
+        mTrashTarget.setEnabled(!mTrashView.isTrashDisabled() && mTrashView.hasTrashPosition()
+                && (!requireReady || mTrashView.isTrashReady()));
+    }
+
+    private DropTarget findDropTarget(Point position) {
         mTargetView.getWindowDrawingRect(mBubbleViewRect, position);
-        return Rect.intersects(mTrashViewRect, mBubbleViewRect);
+        return mDropTargets.find(mBubbleViewRect.left, mBubbleViewRect.top, mBubbleViewRect.right, mBubbleViewRect.bottom);
+    }
+
+    private void snapTo(DropTarget target, Point position) {
+        position.set(
+                target.getSnapX() - mTargetView.getWidth() / 2,
+                target.getSnapY() - mTargetView.getHeight() / 2);
     }
 
-    private void removeBubble(@NonNull BubbleLayout bubble) {
-        bubble.detachFromWindow();
+    private void enterTarget(DropTarget target) {
+        mActiveTarget = target;
+        performSnapFeedback();
+        target.getListener().onBubbleEnter(target, mTargetView.getBubbleId());
+    }
+
+    private void exitActiveTarget() {
+        if (mActiveTarget != null) {
+            final DropTarget target = mActiveTarget;
+            mActiveTarget = null;
+            target.getListener().onBubbleExit(target, mTargetView.getBubbleId());
+        }
+    }
+
+    /**
+     * Remove the top bubble dropped on the trash (the gesture is already over).
+     */
+    private void removeDroppedBubble(int id) {
+        final BubbleLayout bubble = mBubbles.remove(id);
+        if (bubble != null) {
+            Trace.beginSection(TRACE_DROP);
+            removeBubble(bubble, true);
+            updateTarget();
+            updateAttachedBubbles();
+            Trace.endSection();
+        }
+    }
+
+    private void removeBubble(@NonNull BubbleLayout bubble, boolean immediate) {
+        if (bubble.getFollowerLink() != null) {
+            mFollowerChain.remove(bubble.getFollowerLink());
+            bubble.setFollowerLink(null);
+        }
+        AvatarLoader.cancelPending(bubble);
+        bubble.detachFromWindow(immediate);
         bubble.notifyBubbleRemoved();
     }
 
+    private void removeAll(boolean immediate) {
+        final FollowerChain.Link head = mFollowerChain.getHead();
+        if (head == null) {
+            return;
+        }
+        cancelGesture();
+        // Drop all state first, listeners may add bubbles again
+        mFollowerChain.clear();
+        mBubbles.clear();
+        mTargetView = null;
+        for (FollowerChain.Link link = head; link != null; link = link.next) {
+            link.bubble.setFollowerLink(null);
+            AvatarLoader.cancelPending(link.bubble);
+            link.bubble.detachFromWindow(immediate);
+        }
+        for (FollowerChain.Link link = head; link != null; link = link.next) {
+            link.bubble.notifyBubbleRemoved();
+        }
+        if (mTargetView == null) {
+            detachObserver();
+        }
+    }
+
+    /**
+     * Hand the stack to its new top bubble after a removal, or stop observing the screen once it is empty.
+     */
+    private void updateTarget() {
+        final FollowerChain.Link head = mFollowerChain.getHead();
+        final BubbleLayout target = head != null ? head.bubble : null;
+        if (target == mTargetView) {
+            return;
+        }
+        mTargetView = target;
+        if (target != null) {
+            target.setLayoutListener(this);
+            target.setDraggable(true);
+        } else {
+            detachObserver();
+        }
+    }
+
+    /**
+     * Attach the top {@link #mMaxAttachedBubbles} bubbles and detach the ones below.<br/>
+     * Detached bubbles always form the bottom of the stack, so the walk stops at the first
+     * detached bubble beyond the limit.
+     */
+    private void updateAttachedBubbles() {
+        int depth = 0;
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next, depth++) {
+            final BubbleLayout bubble = link.bubble;
+            if (depth < mMaxAttachedBubbles) {
+                if (!bubble.isAttach()) {
+                    // Reappear under the top bubble, then follow it again
+                    bubble.syncPosition(mTargetView);
+                    link.clearSamples();
+                    bubble.attachToWindow();
+                }
+            } else if (bubble.isAttach()) {
+                bubble.detachFromWindow(false);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Abort the drag of the top bubble (it is being removed or covered by a new bubble).
+     */
+    private void cancelGesture() {
+        if (!isGestureActive) {
+            return;
+        }
+        isGestureActive = false;
+        endDragSection();
+        setBubblesMoving(false);
+        exitActiveTarget();
+        if (mTrashView.isAttach()) {
+            mTrashView.setScaleTrashIcon(false);
+            notifyTrash(MotionEvent.ACTION_CANCEL);
+        }
+        if (mGestureTracker != null) {
+            mGestureTracker.cancel();
+        }
+    }
+
+    /**
+     * Enter or leave the moving state: refresh rate vote and host window bounds.
+     *
+     * @param moving true while dragging or flinging
+     */
+    private void setBubblesMoving(boolean moving) {
+        setRefreshRateHint(moving);
+        if (mWindowHost != null) {
+            mWindowHost.setMoving(moving);
+        }
+    }
+
+    /**
+     * Vote for the highest refresh rate of the display while a bubble moves, and for none
+     * (the system default, usually lower) while the bubbles rest.
+     * Only the dragged window votes: the display runs at the highest rate requested by a visible window.
+     *
+     * @param active true while dragging or flinging
+     */
+    private void setRefreshRateHint(boolean active) {
+        final BubbleBaseLayout window = mWindowHost != null ? mWindowHost : mTargetView;
+        if (window != null) {
+            window.setPreferredRefreshRate(active ? getMaxRefreshRate() : 0f);
+        }
+    }
+
+    /**
+     * Highest refresh rate supported at the current resolution.
+     */
+    private float getMaxRefreshRate() {
+        final Display display = mWindowManager.getDefaultDisplay();
+        float maxRate = display.getRefreshRate();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            final Display.Mode current = display.getMode();
+            for (Display.Mode mode : display.getSupportedModes()) {
+                if (mode.getPhysicalWidth() == current.getPhysicalWidth()
+                        && mode.getPhysicalHeight() == current.getPhysicalHeight()) {
+                    maxRate = Math.max(maxRate, mode.getRefreshRate());
+                }
+            }
+        }
+        return maxRate;
+    }
+
+    private void endDragSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_DRAG, mTargetView.getBubbleId());
+        }
+    }
+
+    private void attachObserver() {
+        if (!isObserverAttach) {
+            isObserverAttach = true;
+            mWindowManager.addView(mObserverView, mObserverView.getWindowLayoutParams());
+            mPowerMonitor.start();
+            applyMotionProfile();
+        }
+    }
+
+    private void detachObserver() {
+        if (isObserverAttach) {
+            isObserverAttach = false;
+            mWindowManager.removeViewImmediate(mObserverView);
+            mPowerMonitor.stop();
+        }
+    }
+
+    /**
+     * Hand the motion profile (override, or the one matching the power state) to the animations.
+     */
+    private void applyMotionProfile() {
+        final MotionProfile profile = mMotionProfileOverride != null
+                ? mMotionProfileOverride
+                : mPowerMonitor.isConstrained() ? MotionProfile.DEGRADED : MotionProfile.FULL;
+        if (profile == mMotionProfile) {
+            return;
+        }
+        mMotionProfile = profile;
+        mFollowerChain.setLagEnabled(profile.isFollowerLagEnabled());
+        mTrashView.setBackgroundFadeEnabled(profile.isTrashFadeEnabled());
+        for (FollowerChain.Link link = mFollowerChain.getHead(); link != null; link = link.next) {
+            link.bubble.setMotionProfile(profile);
+        }
+    }
+
+    private void performSnapFeedback() {
+        if (!isHapticFeedbackEnabled) {
+            return;
+        }
+        if (mHapticFeedback == null) {
+            mHapticFeedback = new VibratorHapticFeedback(mContext);
+        }
+        mHapticFeedback.onSnap();
+    }
+
     private void notifyTrash(int action) {
         WindowManager.LayoutParams params = mTargetView.getViewParams();
         notifyTrash(action, params.x, params.y);
@@ -357,6 +1079,40 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
         mTrashView.onTouchBubbleLayout(action, x, y);
     }
 
+    /**
+     * Idle-time steps of {@link #prewarm()}.
+     */
+    private final class Prewarmer implements MessageQueue.IdleHandler {
+
+        private static final int STEP_BUBBLE = 0;
+        private static final int STEP_TRASH = 1;
+        private static final int STEP_OBSERVER = 2;
+
+        private int mStep;
+
+        @Override
+        public boolean queueIdle() {
+            switch (mStep++) {
+                case STEP_BUBBLE:
+                    if (mBubbles.isEmpty()) {
+                        mSpareBubble = new BubbleLayout(mContext);
+                    }
+                    break;
+                case STEP_TRASH:
+                    mTrashView.prewarm();
+                    break;
+                case STEP_OBSERVER:
+                    attachObserver();
+                    break;
+            }
+            if (mStep > STEP_OBSERVER) {
+                mPrewarmer = null;
+                return false;
+            }
+            return true;
+        }
+    }
+
     /* -------------------------------------- option -------------------------------------------- */
 
     /**
@@ -364,6 +1120,11 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
      */
     public static class Options {
 
+        /**
+         * Default lag of a follower behind the bubble above it (milliseconds)
+         */
+        public static final long DEFAULT_FOLLOWER_LAG_MILLIS = 5L;
+
         /**
          * Margin outside the screen(px)
          */
@@ -404,6 +1165,24 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
          */
         public FlingMoveToWallListener.MoveMode mode;
 
+        /**
+         * Lag behind the bubble above this one in the stack (milliseconds)
+         */
+        public long followerLagMillis;
+
+        /**
+         * Avatar drawn behind the floating view (drawable resource), 0 for none.
+         * It is decoded in the background at floatingViewWidth x floatingViewHeight and cropped to a circle
+         */
+        @DrawableRes
+        public int avatarResId;
+
+        /**
+         * Contact shown by the avatar, bubbles with the same key and size share one bitmap.
+         * Null to share by avatarResId
+         */
+        public String avatarKey;
+
         /**
          * Bubble Remove Listener
          */
@@ -426,6 +1205,7 @@ public class BubblesManager implements BubbleLayoutListener, TrashViewListener,
             moveStiffness = SpringForce.STIFFNESS_MEDIUM;
             moveDampingRatio = SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY;
             mode = FlingMoveToWallListener.MoveMode.Vertical;
+            followerLagMillis = DEFAULT_FOLLOWER_LAG_MILLIS;
         }
 
     }
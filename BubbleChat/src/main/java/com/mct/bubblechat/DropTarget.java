@@ -0,0 +1,209 @@
+package com.mct.bubblechat;
+
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.dynamicanimation.animation.SpringForce;
+
+/**
+ * An area the dragged bubble snaps to, registered with {@link BubblesManager#addDropTarget(DropTarget)}.<br/>
+ * A bubble is captured if its rectangle overlaps the hit rect,
+ * or if its center is within the magnet radius of the snap point.
+ * All coordinates are window coordinates (origin at the top left of the screen).
+ * INFO: Must be used from the main thread.
+ */
+public final class DropTarget {
+
+    /**
+     * Listener
+     */
+    private final DropTargetListener mListener;
+
+    /**
+     * Hit rectangle, empty if the target only attracts through its magnet radius
+     */
+    private final Rect mHitRect;
+
+    /**
+     * Where the captured bubble's center goes
+     */
+    private int mSnapX;
+    private int mSnapY;
+
+    /**
+     * Capture distance around the snap point (px)
+     */
+    private int mMagnetRadius;
+
+    /**
+     * Stiffness of the spring pulling a captured bubble to the snap point
+     */
+    private float mMagnetStiffness;
+
+    /**
+     * Disabled targets are skipped by lookups
+     */
+    private boolean mIsEnabled;
+
+    /**
+     * Index the target is registered in, null if not registered
+     */
+    DropTargetIndex mIndex;
+
+    /**
+     * Cells covered in {@link #mIndex} (inclusive), left > right if none
+     */
+    int mCellLeft;
+    int mCellTop;
+    int mCellRight = -1;
+    int mCellBottom = -1;
+
+    /**
+     * Last lookup that tested this target (skips duplicates across cells)
+     */
+    int mQueryStamp;
+
+    public DropTarget(@NonNull DropTargetListener listener) {
+        mListener = listener;
+        mHitRect = new Rect();
+        mMagnetStiffness = SpringForce.STIFFNESS_MEDIUM;
+        mIsEnabled = true;
+    }
+
+    /**
+     * Set the hit rectangle.
+     *
+     * @return this
+     */
+    @NonNull
+    public DropTarget setHitRect(int left, int top, int right, int bottom) {
+        if (mHitRect.left != left || mHitRect.top != top || mHitRect.right != right || mHitRect.bottom != bottom) {
+            mHitRect.set(left, top, right, bottom);
+            onBoundsChanged();
+        }
+        return this;
+    }
+
+    /**
+     * Set where the center of a captured bubble goes.
+     *
+     * @return this
+     */
+    @NonNull
+    public DropTarget setSnapPoint(int x, int y) {
+        if (mSnapX != x || mSnapY != y) {
+            mSnapX = x;
+            mSnapY = y;
+            onBoundsChanged();
+        }
+        return this;
+    }
+
+    /**
+     * Capture a bubble whose center comes within this distance of the snap point.
+     *
+     * @param radius radius (px), 0 to only use the hit rect
+     * @return this
+     */
+    @NonNull
+    public DropTarget setMagnetRadius(int radius) {
+        if (mMagnetRadius != radius) {
+            mMagnetRadius = Math.max(0, radius);
+            onBoundsChanged();
+        }
+        return this;
+    }
+
+    /**
+     * Strength of the snap: stiffness of the spring pulling the bubble to the snap point.
+     *
+     * @param stiffness {@link SpringForce} stiffness
+     * @return this
+     */
+    @NonNull
+    public DropTarget setMagnetStiffness(float stiffness) {
+        mMagnetStiffness = stiffness;
+        return this;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mIsEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    public int getSnapX() {
+        return mSnapX;
+    }
+
+    public int getSnapY() {
+        return mSnapY;
+    }
+
+    public float getMagnetStiffness() {
+        return mMagnetStiffness;
+    }
+
+    @NonNull
+    DropTargetListener getListener() {
+        return mListener;
+    }
+
+    /**
+     * Checks if the target captures a bubble.
+     *
+     * @return true if the bubble rectangle overlaps the hit rect or its center is within the magnet radius
+     */
+    boolean captures(int left, int top, int right, int bottom) {
+        if (!mHitRect.isEmpty()
+                && mHitRect.left < right && left < mHitRect.right && mHitRect.top < bottom && top < mHitRect.bottom) {
+            return true;
+        }
+        if (mMagnetRadius == 0) {
+            return false;
+        }
+        final long dx = (left + right) / 2 - mSnapX;
+        final long dy = (top + bottom) / 2 - mSnapY;
+        return dx * dx + dy * dy <= (long) mMagnetRadius * mMagnetRadius;
+    }
+
+    /**
+     * Squared distance from the center of a bubble to the snap point (closest target wins).
+     */
+    long distanceSquared(int left, int top, int right, int bottom) {
+        final long dx = (left + right) / 2 - mSnapX;
+        final long dy = (top + bottom) / 2 - mSnapY;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Bounds of everything that can capture a bubble (hit rect and magnet circle).
+     */
+    int getCaptureLeft() {
+        return mMagnetRadius == 0 ? mHitRect.left
+                : mHitRect.isEmpty() ? mSnapX - mMagnetRadius : Math.min(mHitRect.left, mSnapX - mMagnetRadius);
+    }
+
+    int getCaptureTop() {
+        return mMagnetRadius == 0 ? mHitRect.top
+                : mHitRect.isEmpty() ? mSnapY - mMagnetRadius : Math.min(mHitRect.top, mSnapY - mMagnetRadius);
+    }
+
+    int getCaptureRight() {
+        return mMagnetRadius == 0 ? mHitRect.right
+                : mHitRect.isEmpty() ? mSnapX + mMagnetRadius : Math.max(mHitRect.right, mSnapX + mMagnetRadius);
+    }
+
+    int getCaptureBottom() {
+        return mMagnetRadius == 0 ? mHitRect.bottom
+                : mHitRect.isEmpty() ? mSnapY + mMagnetRadius : Math.max(mHitRect.bottom, mSnapY + mMagnetRadius);
+    }
+
+    private void onBoundsChanged() {
+        if (mIndex != null) {
+            mIndex.update(this);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.mct.bubblechat;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Uniform grid of drop targets.<br/>
+ * Each target is stored in the cells covered by its capture bounds, so a lookup only tests
+ * the targets of the few cells under the bubble, however many targets are registered.
+ * Coordinates outside the grid fall into the border cells.
+ * INFO: Must be used from the main thread.
+ */
+final class DropTargetIndex {
+
+    /**
+     * Registered targets
+     */
+    private final ArrayList<DropTarget> mTargets;
+
+    /**
+     * Side of a cell (px)
+     */
+    private final int mCellSize;
+
+    /**
+     * Grid size
+     */
+    private int mColumns;
+    private int mRows;
+
+    /**
+     * Targets by cell (row-major)
+     */
+    private ArrayList<DropTarget>[] mCells;
+
+    /**
+     * Stamp of the current lookup
+     */
+    private int mQueryStamp;
+
+    /**
+     * @param cellSize side of a cell (px), about the size of a bubble
+     */
+    DropTargetIndex(int cellSize) {
+        mTargets = new ArrayList<>();
+        mCellSize = Math.max(1, cellSize);
+        setBounds(mCellSize, mCellSize);
+    }
+
+    /**
+     * Resize the grid to cover the screen.
+     *
+     * @param width  screen width
+     * @param height screen height
+     */
+    @SuppressWarnings("unchecked")
+    void setBounds(int width, int height) {
+        final int columns = Math.max(1, (width + mCellSize - 1) / mCellSize);
+        final int rows = Math.max(1, (height + mCellSize - 1) / mCellSize);
+        if (columns == mColumns && rows == mRows) {
+            return;
+        }
+        mColumns = columns;
+        mRows = rows;
+        mCells = new ArrayList[columns * rows];
+        for (int i = 0; i < mCells.length; i++) {
+            mCells[i] = new ArrayList<>(2);
+        }
+        final int size = mTargets.size();
+        for (int i = 0; i < size; i++) {
+            final DropTarget target = mTargets.get(i);
+            target.mCellRight = target.mCellBottom = -1;
+            insert(target);
+        }
+    }
+
+    void add(@NonNull DropTarget target) {
+        if (target.mIndex == this) {
+            return;
+        }
+        if (target.mIndex != null) {
+            target.mIndex.remove(target);
+        }
+        target.mIndex = this;
+        mTargets.add(target);
+        insert(target);
+    }
+
+    void remove(@NonNull DropTarget target) {
+        if (target.mIndex != this) {
+            return;
+        }
+        erase(target);
+        mTargets.remove(target);
+        target.mIndex = null;
+    }
+
+    /**
+     * Re-bucket a target whose bounds have changed.
+     */
+    void update(@NonNull DropTarget target) {
+        final int left = column(target.getCaptureLeft());
+        final int top = row(target.getCaptureTop());
+        final int right = column(target.getCaptureRight());
+        final int bottom = row(target.getCaptureBottom());
+        if (left == target.mCellLeft && top == target.mCellTop
+                && right == target.mCellRight && bottom == target.mCellBottom) {
+            return;
+        }
+        erase(target);
+        insert(target);
+    }
+
+    /**
+     * Find the enabled target capturing a bubble, the closest one if several do.
+     *
+     * @return target or null
+     */
+    DropTarget find(int left, int top, int right, int bottom) {
+        final int stamp = ++mQueryStamp;
+        DropTarget best = null;
+        long bestDistance = Long.MAX_VALUE;
+        final int cellRight = column(right);
+        final int cellBottom = row(bottom);
+        for (int row = row(top); row <= cellBottom; row++) {
+            for (int column = column(left); column <= cellRight; column++) {
+                final ArrayList<DropTarget> cell = mCells[row * mColumns + column];
+                final int size = cell.size();
+                for (int i = 0; i < size; i++) {
+                    final DropTarget target = cell.get(i);
+                    if (target.mQueryStamp == stamp) {
+                        continue;
+                    }
+                    target.mQueryStamp = stamp;
+                    if (!target.isEnabled() || !target.captures(left, top, right, bottom)) {
+                        continue;
+                    }
+                    final long distance = target.distanceSquared(left, top, right, bottom);
+                    if (distance < bestDistance) {
+                        best = target;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void insert(DropTarget target) {
+        target.mCellLeft = column(target.getCaptureLeft());
+        target.mCellTop = row(target.getCaptureTop());
+        target.mCellRight = column(target.getCaptureRight());
+        target.mCellBottom = row(target.getCaptureBottom());
+        for (int row = target.mCellTop; row <= target.mCellBottom; row++) {
+            for (int column = target.mCellLeft; column <= target.mCellRight; column++) {
+                mCells[row * mColumns + column].add(target);
+            }
+        }
+    }
+
+    private void erase(DropTarget target) {
+        for (int row = target.mCellTop; row <= target.mCellBottom; row++) {
+            for (int column = target.mCellLeft; column <= target.mCellRight; column++) {
+                mCells[row * mColumns + column].remove(target);
+            }
+        }
+        target.mCellRight = target.mCellBottom = -1;
+    }
+
+    private int column(int x) {
+        return Math.min(mColumns - 1, Math.max(0, x / mCellSize));
+    }
+
+    private int row(int y) {
+        return Math.min(mRows - 1, Math.max(0, y / mCellSize));
+    }
+}
@@ -0,0 +1,34 @@
+package com.mct.bubblechat;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Events of a {@link DropTarget}. Called on the main thread.
+ */
+public interface DropTargetListener {
+
+    /**
+     * The dragged bubble has been captured by the target (it snaps to the target).
+     *
+     * @param target   drop target
+     * @param bubbleId id of the bubble, see {@link BubblesManager#addBubble}
+     */
+    void onBubbleEnter(@NonNull DropTarget target, int bubbleId);
+
+    /**
+     * The dragged bubble has left the target.
+     *
+     * @param target   drop target
+     * @param bubbleId id of the bubble
+     */
+    void onBubbleExit(@NonNull DropTarget target, int bubbleId);
+
+    /**
+     * The bubble has been released on the target.
+     * The bubble goes back to the edge of the screen unless it is removed here.
+     *
+     * @param target   drop target
+     * @param bubbleId id of the bubble
+     */
+    void onBubbleDrop(@NonNull DropTarget target, int bubbleId);
+}
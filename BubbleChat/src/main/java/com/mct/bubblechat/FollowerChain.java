@@ -0,0 +1,249 @@
+package com.mct.bubblechat;
+
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a stack of follower bubbles from a single frame callback.<br/>
+ * The leader is the head of the chain, each follower chases its predecessor's position
+ * as it was {@link Link#lagMillis} ago. Positions are recorded in preallocated ring buffers,
+ * so a frame does not allocate.
+ * INFO: Must be used from the main thread.
+ */
+final class FollowerChain implements Choreographer.FrameCallback {
+
+    /**
+     * Number of predecessor samples kept per link.
+     * Lag longer than the recorded window falls back to the oldest sample.
+     */
+    private static final int SAMPLE_CAPACITY = 16;
+
+    /**
+     * Choreographer
+     */
+    private final Choreographer mChoreographer;
+
+    /**
+     * Leader (top bubble)
+     */
+    private Link mHead;
+
+    /**
+     * True if a frame callback has been posted
+     */
+    private boolean mIsScheduled;
+
+    /**
+     * False to chase the predecessor without lag ({@link MotionProfile})
+     */
+    private boolean mIsLagEnabled = true;
+
+    FollowerChain() {
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Put a bubble on top of the stack. The previous leader becomes its first follower.
+     *
+     * @param bubble    new leader
+     * @param lagMillis lag of this bubble behind its predecessor once it becomes a follower
+     * @return link of the bubble
+     */
+    @NonNull
+    Link addLeader(@NonNull BubbleLayout bubble, long lagMillis) {
+        final Link link = new Link(bubble, lagMillis);
+        link.next = mHead;
+        if (mHead != null) {
+            mHead.prev = link;
+            mHead.clearSamples();
+        }
+        mHead = link;
+        return link;
+    }
+
+    /**
+     * Remove a bubble from the stack. Its follower now chases its predecessor.
+     *
+     * @param link link returned by {@link #addLeader(BubbleLayout, long)}
+     */
+    void remove(@NonNull Link link) {
+        if (link.prev != null) {
+            link.prev.next = link.next;
+        } else if (mHead == link) {
+            mHead = link.next;
+        }
+        if (link.next != null) {
+            link.next.prev = link.prev;
+            link.next.clearSamples();
+        }
+        link.prev = link.next = null;
+    }
+
+    /**
+     * Remove every bubble.
+     */
+    void clear() {
+        mHead = null;
+        if (mIsScheduled) {
+            mIsScheduled = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * Enable or disable the lag of every follower.
+     *
+     * @param enabled false to follow the latest position of the predecessor
+     */
+    void setLagEnabled(boolean enabled) {
+        mIsLagEnabled = enabled;
+    }
+
+    /**
+     * Leader of the stack.
+     *
+     * @return leader link or null if empty
+     */
+    Link getHead() {
+        return mHead;
+    }
+
+    /**
+     * Request a propagation pass on the next frame (a bubble in the chain moved).
+     */
+    void requestFrame() {
+        if (!mIsScheduled && mHead != null && mHead.next != null) {
+            mIsScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mIsScheduled = false;
+        final long now = TimeUnit.NANOSECONDS.toMillis(frameTimeNanos);
+        boolean hasPendingSample = false;
+        for (Link link = mHead == null ? null : mHead.next; link != null; link = link.next) {
+            // The rest of the stack is detached (virtualized), it is synced when attached again
+            if (!link.bubble.isAttach()) {
+                break;
+            }
+            final WindowManager.LayoutParams predecessor = link.prev.bubble.getViewParams();
+            link.record(now, predecessor.x, predecessor.y);
+            hasPendingSample |= link.follow(now, mIsLagEnabled);
+        }
+        // A lagged sample has not been applied yet, keep going even if every spring is at rest
+        if (hasPendingSample) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * A node of the chain, one per bubble.
+     */
+    static final class Link {
+
+        /**
+         * Bubble of this link
+         */
+        final BubbleLayout bubble;
+
+        /**
+         * Lag behind the predecessor (milliseconds)
+         */
+        final long lagMillis;
+
+        /**
+         * Predecessor (toward the leader)
+         */
+        Link prev;
+
+        /**
+         * Follower
+         */
+        Link next;
+
+        /**
+         * Ring buffer of predecessor positions
+         */
+        private final long[] mSampleTimes = new long[SAMPLE_CAPACITY];
+        private final int[] mSampleX = new int[SAMPLE_CAPACITY];
+        private final int[] mSampleY = new int[SAMPLE_CAPACITY];
+
+        /**
+         * Index of the newest sample, and number of samples
+         */
+        private int mNewest;
+        private int mCount;
+
+        /**
+         * Last target handed to the bubble's springs
+         */
+        private int mTargetX;
+        private int mTargetY;
+        private boolean mHasTarget;
+
+        Link(@NonNull BubbleLayout bubble, long lagMillis) {
+            this.bubble = bubble;
+            this.lagMillis = Math.max(0, lagMillis);
+        }
+
+        void clearSamples() {
+            mCount = 0;
+            mHasTarget = false;
+        }
+
+        void record(long time, int x, int y) {
+            // Skip duplicates of a resting predecessor
+            if (mCount > 0 && mSampleX[mNewest] == x && mSampleY[mNewest] == y) {
+                return;
+            }
+            mNewest = (mNewest + 1) % SAMPLE_CAPACITY;
+            mSampleTimes[mNewest] = time;
+            mSampleX[mNewest] = x;
+            mSampleY[mNewest] = y;
+            mCount = Math.min(mCount + 1, SAMPLE_CAPACITY);
+        }
+
+        /**
+         * Animate the bubble to the newest sample that is at least lagMillis old.
+         *
+         * @param now          frame time (milliseconds)
+         * @param isLagEnabled false to take the newest sample
+         * @return true if a newer sample still waits for its lag to pass
+         */
+        boolean follow(long now, boolean isLagEnabled) {
+            if (mCount == 0) {
+                return false;
+            }
+            final long deadline = isLagEnabled ? now - lagMillis : now;
+            int index = mNewest;
+            int age = 0;
+            while (age < mCount - 1 && mSampleTimes[index] > deadline) {
+                index = (index - 1 + SAMPLE_CAPACITY) % SAMPLE_CAPACITY;
+                age++;
+            }
+            final int x = mSampleX[index];
+            final int y = mSampleY[index];
+            if (!mHasTarget || x != mTargetX || y != mTargetY) {
+                mHasTarget = true;
+                mTargetX = x;
+                mTargetY = y;
+                bubble.animateTo(x, y);
+            }
+            return age > 0;
+        }
+
+        int getTargetX() {
+            return mTargetX;
+        }
+
+        int getTargetY() {
+            return mTargetY;
+        }
+    }
+}
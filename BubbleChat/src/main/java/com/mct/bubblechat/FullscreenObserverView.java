@@ -4,19 +4,24 @@ import static android.view.WindowManager.LayoutParams;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.os.Build;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 
 /**
- * A View that monitors the full screen.
+ * A View that monitors the full screen.<br/>
+ * Layout and system UI events are coalesced into one check per frame,
+ * and the listener is only called if the window frame or the visibility has changed.
  * http://stackoverflow.com/questions/18551135/receiving-hidden-status-bar-entering-a-full-screen-activity-event-on-a-service/19201933#19201933
  */
 @SuppressLint("ViewConstructor")
-class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLayoutListener, View.OnSystemUiVisibilityChangeListener {
+class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLayoutListener,
+        View.OnSystemUiVisibilityChangeListener, Choreographer.FrameCallback {
 
     /**
      * Constant that mLastUiVisibility does not exist.
@@ -44,6 +49,22 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
      */
     private final Rect mWindowRect;
 
+    /**
+     * Window's Rect and display state of the last notification
+     */
+    private final Rect mNotifiedWindowRect;
+    private int mNotifiedUiVisibility;
+
+    /**
+     * If true, the next frame notifies even if nothing has changed
+     */
+    private boolean isForceNotify;
+
+    /**
+     * True if a frame callback has been posted
+     */
+    private boolean isFrameScheduled;
+
     /**
      * constructor
      */
@@ -66,7 +87,9 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
         mParams.format = PixelFormat.TRANSLUCENT;
 
         mWindowRect = new Rect();
+        mNotifiedWindowRect = new Rect();
         mLastUiVisibility = NO_LAST_VISIBILITY;
+        mNotifiedUiVisibility = NO_LAST_VISIBILITY;
 
     }
 
@@ -75,6 +98,19 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
         super.onAttachedToWindow();
         getViewTreeObserver().addOnGlobalLayoutListener(this);
         setOnSystemUiVisibilityChangeListener(this);
+        // The screen may have changed while detached
+        SystemUiMetrics.invalidate();
+        isForceNotify = true;
+    }
+
+    /**
+     * The system ui dimensions are recomputed for the new configuration (rotation, display size, etc.)
+     */
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        SystemUiMetrics.invalidate();
+        invalidateScreen();
     }
 
     /**
@@ -85,6 +121,10 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
         // Remove layout change notification
         getViewTreeObserver().removeOnGlobalLayoutListener(this);
         setOnSystemUiVisibilityChangeListener(null);
+        if (isFrameScheduled) {
+            isFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
         super.onDetachedFromWindow();
     }
 
@@ -93,11 +133,7 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
      */
     @Override
     public void onGlobalLayout() {
-        // ViewGet size (full screen)
-        if (mScreenChangedListener != null) {
-            getWindowVisibleDisplayFrame(mWindowRect);
-            mScreenChangedListener.onScreenChanged(mWindowRect, mLastUiVisibility);
-        }
+        requestScreenChanged(false);
     }
 
     /**
@@ -108,10 +144,42 @@ class FullscreenObserverView extends View implements ViewTreeObserver.OnGlobalLa
     public void onSystemUiVisibilityChange(int visibility) {
         mLastUiVisibility = visibility;
         // Display/hide switching in response to changes in the navigation bar
-        if (mScreenChangedListener != null) {
-            getWindowVisibleDisplayFrame(mWindowRect);
-            mScreenChangedListener.onScreenChanged(mWindowRect, visibility);
+        requestScreenChanged(false);
+    }
+
+    /**
+     * Notify the listener on the next frame even if the screen has not changed (e.g. new safe inset).
+     */
+    void invalidateScreen() {
+        requestScreenChanged(true);
+    }
+
+    private void requestScreenChanged(boolean force) {
+        isForceNotify |= force;
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * One check per frame: rotation, IME and immersive toggles fire bursts of layouts.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isFrameScheduled = false;
+        if (mScreenChangedListener == null) {
+            return;
+        }
+        // ViewGet size (full screen)
+        getWindowVisibleDisplayFrame(mWindowRect);
+        if (!isForceNotify && mWindowRect.equals(mNotifiedWindowRect) && mLastUiVisibility == mNotifiedUiVisibility) {
+            return;
         }
+        isForceNotify = false;
+        mNotifiedWindowRect.set(mWindowRect);
+        mNotifiedUiVisibility = mLastUiVisibility;
+        mScreenChangedListener.onScreenChanged(mWindowRect, mLastUiVisibility);
     }
 
     /**
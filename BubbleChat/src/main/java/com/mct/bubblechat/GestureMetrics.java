@@ -0,0 +1,102 @@
+package com.mct.bubblechat;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Performance metrics of one bubble gesture, from ACTION_DOWN to release.
+ */
+public final class GestureMetrics {
+
+    private final long mDurationNanos;
+    private final float mRefreshRate;
+    private final int mFrameCount;
+    private final int mJankyFrameCount;
+    private final int mWindowUpdateCount;
+    private final long mWindowUpdateNanos;
+    private final long mMoveCallbackNanos;
+    private final long mFlingCallbackNanos;
+
+    GestureMetrics(long durationNanos, float refreshRate, int frameCount, int jankyFrameCount,
+                   int windowUpdateCount, long windowUpdateNanos,
+                   long moveCallbackNanos, long flingCallbackNanos) {
+        mDurationNanos = durationNanos;
+        mRefreshRate = refreshRate;
+        mFrameCount = frameCount;
+        mJankyFrameCount = jankyFrameCount;
+        mWindowUpdateCount = windowUpdateCount;
+        mWindowUpdateNanos = windowUpdateNanos;
+        mMoveCallbackNanos = moveCallbackNanos;
+        mFlingCallbackNanos = flingCallbackNanos;
+    }
+
+    /**
+     * @return gesture duration (nanoseconds)
+     */
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    /**
+     * @return display refresh rate the frame budget was derived from (Hz)
+     */
+    public float getRefreshRate() {
+        return mRefreshRate;
+    }
+
+    /**
+     * @return frames rendered during the gesture
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return frames that arrived later than one and a half frame budget after the previous one
+     */
+    public int getJankyFrameCount() {
+        return mJankyFrameCount;
+    }
+
+    /**
+     * @return number of WindowManager.updateViewLayout calls
+     */
+    public int getWindowUpdateCount() {
+        return mWindowUpdateCount;
+    }
+
+    /**
+     * @return total duration of WindowManager.updateViewLayout calls (nanoseconds)
+     */
+    public long getWindowUpdateNanos() {
+        return mWindowUpdateNanos;
+    }
+
+    /**
+     * @return time spent in onBubbleMove (nanoseconds)
+     */
+    public long getMoveCallbackNanos() {
+        return mMoveCallbackNanos;
+    }
+
+    /**
+     * @return time spent in onBubbleFling (nanoseconds)
+     */
+    public long getFlingCallbackNanos() {
+        return mFlingCallbackNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "GestureMetrics{" +
+                "durationNanos=" + mDurationNanos +
+                ", refreshRate=" + mRefreshRate +
+                ", frameCount=" + mFrameCount +
+                ", jankyFrameCount=" + mJankyFrameCount +
+                ", windowUpdateCount=" + mWindowUpdateCount +
+                ", windowUpdateNanos=" + mWindowUpdateNanos +
+                ", moveCallbackNanos=" + mMoveCallbackNanos +
+                ", flingCallbackNanos=" + mFlingCallbackNanos +
+                '}';
+    }
+}
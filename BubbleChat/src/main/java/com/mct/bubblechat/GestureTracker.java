@@ -0,0 +1,112 @@
+package com.mct.bubblechat;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Collects frame timing and window IPC of the current gesture for {@link BubbleMetricsListener}.
+ * INFO: Must be used from the main thread.
+ */
+final class GestureTracker implements Choreographer.FrameCallback {
+
+    /**
+     * A frame is over budget when it arrives this many frame intervals after the previous one
+     */
+    private static final float JANK_THRESHOLD_FRAMES = 1.5f;
+
+    private final BubbleMetricsListener mListener;
+    private final Choreographer mChoreographer;
+
+    private boolean mIsTracking;
+    private long mStartNanos;
+    private long mLastFrameNanos;
+    private long mFrameBudgetNanos;
+    private float mRefreshRate;
+    private int mFrameCount;
+    private int mJankyFrameCount;
+    private int mWindowUpdateCount;
+    private long mWindowUpdateNanos;
+    private long mMoveCallbackNanos;
+    private long mFlingCallbackNanos;
+
+    GestureTracker(@NonNull BubbleMetricsListener listener) {
+        mListener = listener;
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Start a gesture.
+     *
+     * @param refreshRate display refresh rate (Hz)
+     */
+    void start(float refreshRate) {
+        if (mIsTracking) {
+            mChoreographer.removeFrameCallback(this);
+        }
+        mIsTracking = true;
+        mRefreshRate = refreshRate > 0 ? refreshRate : 60f;
+        mFrameBudgetNanos = (long) (1_000_000_000L / mRefreshRate);
+        mStartNanos = System.nanoTime();
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mJankyFrameCount = 0;
+        mWindowUpdateCount = 0;
+        mWindowUpdateNanos = 0;
+        mMoveCallbackNanos = 0;
+        mFlingCallbackNanos = 0;
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Finish the gesture and report it.
+     */
+    void finish() {
+        if (!mIsTracking) {
+            return;
+        }
+        mIsTracking = false;
+        mChoreographer.removeFrameCallback(this);
+        mListener.onGestureMetrics(new GestureMetrics(System.nanoTime() - mStartNanos, mRefreshRate,
+                mFrameCount, mJankyFrameCount, mWindowUpdateCount, mWindowUpdateNanos,
+                mMoveCallbackNanos, mFlingCallbackNanos));
+    }
+
+    /**
+     * Stop tracking without reporting.
+     */
+    void cancel() {
+        mIsTracking = false;
+        mChoreographer.removeFrameCallback(this);
+    }
+
+    boolean isTracking() {
+        return mIsTracking;
+    }
+
+    void onWindowUpdate(long durationNanos) {
+        mWindowUpdateCount++;
+        mWindowUpdateNanos += durationNanos;
+    }
+
+    void onMoveCallback(long durationNanos) {
+        mMoveCallbackNanos += durationNanos;
+    }
+
+    void onFlingCallback(long durationNanos) {
+        mFlingCallbackNanos += durationNanos;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mIsTracking) {
+            return;
+        }
+        if (mLastFrameNanos != 0 && frameTimeNanos - mLastFrameNanos > mFrameBudgetNanos * JANK_THRESHOLD_FRAMES) {
+            mJankyFrameCount++;
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mFrameCount++;
+        mChoreographer.postFrameCallback(this);
+    }
+}
@@ -0,0 +1,167 @@
+package com.mct.bubblechat;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Batches WindowManager layout updates.<br/>
+ * Writes to a window's LayoutParams only mark it dirty, and a single Choreographer
+ * frame callback flushes every dirty window exactly once per frame.
+ * INFO: Must be used from the main thread.
+ */
+final class LayoutCommitter implements Choreographer.FrameCallback {
+
+    /**
+     * Instance bound to the main thread's Choreographer
+     */
+    private static LayoutCommitter sInstance;
+
+    /**
+     * Choreographer
+     */
+    private final Choreographer mChoreographer;
+
+    /**
+     * Windows waiting to be committed on the next frame
+     */
+    private ArrayList<BubbleBaseLayout> mDirtyLayouts;
+
+    /**
+     * Windows being committed by the current frame (swapped with mDirtyLayouts)
+     */
+    private ArrayList<BubbleBaseLayout> mCommittingLayouts;
+
+    /**
+     * Windows committed by the current pass and scheduled again, they wait for the next frame
+     */
+    private final ArrayList<BubbleBaseLayout> mDeferredLayouts;
+
+    /**
+     * True if a frame callback has been posted
+     */
+    private boolean mIsScheduled;
+
+    /**
+     * True while doFrame commits, a schedule is drained by the running pass
+     */
+    private boolean mIsCommitting;
+
+    /**
+     * Number of the current commit pass
+     */
+    private int mPass;
+
+    private LayoutCommitter() {
+        mChoreographer = Choreographer.getInstance();
+        mDirtyLayouts = new ArrayList<>();
+        mCommittingLayouts = new ArrayList<>();
+        mDeferredLayouts = new ArrayList<>();
+    }
+
+    @NonNull
+    static LayoutCommitter getInstance() {
+        if (sInstance == null) {
+            sInstance = new LayoutCommitter();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Drop every pending commit and the instance itself (tests share the main thread's Choreographer).
+     */
+    static void reset() {
+        if (sInstance == null) {
+            return;
+        }
+        final LayoutCommitter committer = sInstance;
+        sInstance = null;
+        if (committer.mIsScheduled) {
+            committer.mIsScheduled = false;
+            committer.mChoreographer.removeFrameCallback(committer);
+        }
+        for (int i = 0; i < committer.mDirtyLayouts.size(); i++) {
+            committer.mDirtyLayouts.get(i).setLayoutDirty(false);
+        }
+        committer.mDirtyLayouts.clear();
+        committer.mCommittingLayouts.clear();
+        committer.mDeferredLayouts.clear();
+    }
+
+    /**
+     * Mark the layout's LayoutParams dirty and schedule a commit on the next frame.
+     *
+     * @param layout layout to commit
+     */
+    void schedule(@NonNull BubbleBaseLayout layout) {
+        if (layout.isLayoutDirty()) {
+            return;
+        }
+        layout.setLayoutDirty(true);
+        mDirtyLayouts.add(layout);
+        if (!mIsScheduled && !mIsCommitting) {
+            mIsScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Drop a pending commit (the window is going away).
+     *
+     * @param layout layout to forget
+     */
+    void cancel(@NonNull BubbleBaseLayout layout) {
+        if (!layout.isLayoutDirty()) {
+            return;
+        }
+        layout.setLayoutDirty(false);
+        mDirtyLayouts.remove(layout);
+        if (mDirtyLayouts.isEmpty() && mIsScheduled) {
+            mIsScheduled = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mIsScheduled = false;
+        mIsCommitting = true;
+        final int pass = ++mPass;
+        // A commit can schedule another window (a bubble its host window), drain it in the same frame.
+        // A layout already committed by this pass goes to the next frame.
+        while (!mDirtyLayouts.isEmpty()) {
+            final ArrayList<BubbleBaseLayout> layouts = mDirtyLayouts;
+            mDirtyLayouts = mCommittingLayouts;
+            mCommittingLayouts = layouts;
+            for (int i = 0; i < layouts.size(); i++) {
+                final BubbleBaseLayout layout = layouts.get(i);
+                // Cancelled during the pass
+                if (!layout.isLayoutDirty()) {
+                    continue;
+                }
+                if (layout.getCommitPass() == pass) {
+                    mDeferredLayouts.add(layout);
+                    continue;
+                }
+                layout.setCommitPass(pass);
+                layout.setLayoutDirty(false);
+                layout.updateLayoutParams();
+            }
+            layouts.clear();
+        }
+        mIsCommitting = false;
+        for (int i = 0; i < mDeferredLayouts.size(); i++) {
+            final BubbleBaseLayout layout = mDeferredLayouts.get(i);
+            if (layout.isLayoutDirty()) {
+                mDirtyLayouts.add(layout);
+            }
+        }
+        mDeferredLayouts.clear();
+        if (!mDirtyLayouts.isEmpty()) {
+            mIsScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mct.bubblechat;
+
+import androidx.dynamicanimation.animation.SpringForce;
+
+/**
+ * Animation quality of a {@link BubblesManager}.<br/>
+ * {@link #DEGRADED} is used automatically while battery saver is on or the device is
+ * thermally throttled, see {@link BubblesManager#setMotionProfile(MotionProfile)}.
+ */
+public final class MotionProfile {
+
+    /**
+     * Every animation as configured by {@link BubblesManager.Options}
+     */
+    public static final MotionProfile FULL = new MotionProfile(false, true, true);
+
+    /**
+     * Critically damped springs, followers without lag and no trash background fade
+     */
+    public static final MotionProfile DEGRADED = new MotionProfile(true, false, false);
+
+    private final boolean isCriticallyDamped;
+    private final boolean isFollowerLagEnabled;
+    private final boolean isTrashFadeEnabled;
+
+    /**
+     * @param criticallyDamped    true to settle springs without bouncing (fewer frames)
+     * @param followerLagEnabled  true to let followers trail the bubble above them
+     * @param trashFadeEnabled    true to fade the trash background in and out
+     */
+    public MotionProfile(boolean criticallyDamped, boolean followerLagEnabled, boolean trashFadeEnabled) {
+        this.isCriticallyDamped = criticallyDamped;
+        this.isFollowerLagEnabled = followerLagEnabled;
+        this.isTrashFadeEnabled = trashFadeEnabled;
+    }
+
+    public boolean isCriticallyDamped() {
+        return isCriticallyDamped;
+    }
+
+    public boolean isFollowerLagEnabled() {
+        return isFollowerLagEnabled;
+    }
+
+    public boolean isTrashFadeEnabled() {
+        return isTrashFadeEnabled;
+    }
+
+    /**
+     * Damping ratio of a spring under this profile.
+     *
+     * @param dampingRatio configured damping ratio
+     * @return damping ratio to use
+     */
+    float resolveDampingRatio(float dampingRatio) {
+        return isCriticallyDamped ? SpringForce.DAMPING_RATIO_NO_BOUNCY : dampingRatio;
+    }
+}
@@ -0,0 +1,123 @@
+package com.mct.bubblechat;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Watches battery saver and, on API 29+, the thermal status.<br/>
+ * The device is constrained while either is active.
+ * INFO: Must be used from the main thread.
+ */
+final class PowerStateMonitor extends BroadcastReceiver {
+
+    /**
+     * Thermal status from which animations are reduced
+     */
+    private static final int THERMAL_STATUS_THRESHOLD = 2; // PowerManager.THERMAL_STATUS_MODERATE
+
+    interface Listener {
+        void onPowerStateChanged(boolean isConstrained);
+    }
+
+    private final Context mContext;
+    private final PowerManager mPowerManager;
+    private final Listener mListener;
+
+    /**
+     * OnThermalStatusChangedListener (API 29+), null before
+     */
+    private final Object mThermalListener;
+
+    private boolean isStarted;
+    private boolean isConstrained;
+
+    PowerStateMonitor(@NonNull Context context, @NonNull Listener listener) {
+        mContext = context;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mListener = listener;
+        mThermalListener = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? Api29Impl.createThermalListener(this)
+                : null;
+    }
+
+    void start() {
+        if (isStarted || mPowerManager == null) {
+            return;
+        }
+        isStarted = true;
+        mContext.registerReceiver(this, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        if (mThermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Api29Impl.addThermalListener(mPowerManager, mThermalListener);
+        }
+        isConstrained = readConstrained();
+    }
+
+    void stop() {
+        if (!isStarted) {
+            return;
+        }
+        isStarted = false;
+        mContext.unregisterReceiver(this);
+        if (mThermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Api29Impl.removeThermalListener(mPowerManager, mThermalListener);
+        }
+    }
+
+    /**
+     * @return true if battery saver is on or the device is throttled
+     */
+    boolean isConstrained() {
+        return isConstrained;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        update();
+    }
+
+    private void update() {
+        final boolean constrained = readConstrained();
+        if (constrained != isConstrained) {
+            isConstrained = constrained;
+            mListener.onPowerStateChanged(constrained);
+        }
+    }
+
+    private boolean readConstrained() {
+        if (mPowerManager == null) {
+            return false;
+        }
+        if (mPowerManager.isPowerSaveMode()) {
+            return true;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && Api29Impl.getThermalStatus(mPowerManager) >= THERMAL_STATUS_THRESHOLD;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static final class Api29Impl {
+
+        static Object createThermalListener(PowerStateMonitor monitor) {
+            return (PowerManager.OnThermalStatusChangedListener) status -> monitor.update();
+        }
+
+        static void addThermalListener(PowerManager powerManager, Object listener) {
+            powerManager.addThermalStatusListener((PowerManager.OnThermalStatusChangedListener) listener);
+        }
+
+        static void removeThermalListener(PowerManager powerManager, Object listener) {
+            powerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) listener);
+        }
+
+        static int getThermalStatus(PowerManager powerManager) {
+            return powerManager.getCurrentThermalStatus();
+        }
+    }
+}
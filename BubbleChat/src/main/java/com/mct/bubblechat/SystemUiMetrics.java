@@ -0,0 +1,172 @@
+package com.mct.bubblechat;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Process-wide cache of system UI dimensions shared by every BubbleLayout.<br/>
+ * The values are looked up once per configuration and recomputed when the configuration changes.
+ * INFO: Must be used from the main thread.
+ */
+final class SystemUiMetrics {
+
+    /**
+     * Shared instance
+     */
+    private static SystemUiMetrics sInstance;
+
+    /**
+     * Configuration the values were computed for
+     */
+    private final Configuration mConfiguration;
+
+    /**
+     * DisplayMetrics
+     */
+    private final DisplayMetrics mMetrics;
+
+    /**
+     * Real DisplayMetrics (including system decorations)
+     */
+    private final DisplayMetrics mRealMetrics;
+
+    /**
+     * True if the values match mConfiguration
+     */
+    private boolean mIsValid;
+
+    /**
+     * status bar's height
+     */
+    int statusBarHeight;
+
+    /**
+     * status bar's height(landscape)
+     */
+    int statusBarRotatedHeight;
+
+    /**
+     * Navigation bar's height(portrait)
+     */
+    int navigationBarHeight;
+
+    /**
+     * Navigation bar's height
+     * Placed bottom on the screen(tablet)
+     * Or placed vertically on the screen(phone)
+     */
+    int navigationBarRotatedHeight;
+
+    /**
+     * If true, it's a tablet. If false, it's a phone
+     */
+    boolean isTablet;
+
+    /**
+     * If true, the navigation bar is drawn by software
+     */
+    boolean hasSoftNavigationBar;
+
+    /**
+     * Real display width, including system decorations
+     */
+    int realWidthPixels;
+
+    /**
+     * Real display height, including system decorations
+     */
+    int realHeightPixels;
+
+    private SystemUiMetrics() {
+        mConfiguration = new Configuration();
+        mMetrics = new DisplayMetrics();
+        mRealMetrics = new DisplayMetrics();
+    }
+
+    /**
+     * Get the metrics for the current configuration.
+     *
+     * @param context Context
+     * @return shared metrics
+     */
+    @NonNull
+    static SystemUiMetrics get(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new SystemUiMetrics();
+        }
+        sInstance.ensureUpToDate(context);
+        return sInstance;
+    }
+
+    /**
+     * Force the next {@link #get(Context)} to recompute the values.
+     * The display can change without a configuration change (e.g. while no bubble is shown).
+     */
+    static void invalidate() {
+        if (sInstance != null) {
+            sInstance.mIsValid = false;
+        }
+    }
+
+    private void ensureUpToDate(@NonNull Context context) {
+        final Resources resources = context.getResources();
+        final Configuration configuration = resources.getConfiguration();
+        if (mIsValid && mConfiguration.diff(configuration) == 0) {
+            return;
+        }
+        mConfiguration.setTo(configuration);
+        mIsValid = true;
+
+        isTablet = (configuration.screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK) >= Configuration.SCREENLAYOUT_SIZE_LARGE;
+
+        // Get status bar height
+        statusBarHeight = getSystemUiDimensionPixelSize(resources, "status_bar_height");
+        // Check landscape resource id
+        @SuppressLint({"DiscouragedApi", "InternalInsetResource"}) final int statusBarLandscapeResId = resources.getIdentifier("status_bar_height_landscape", "dimen", "android");
+        if (statusBarLandscapeResId > 0) {
+            statusBarRotatedHeight = resources.getDimensionPixelSize(statusBarLandscapeResId);
+        } else {
+            statusBarRotatedHeight = statusBarHeight;
+        }
+
+        // Detect NavigationBar
+        final Display display = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+        display.getMetrics(mMetrics);
+        display.getRealMetrics(mRealMetrics);
+        realWidthPixels = mRealMetrics.widthPixels;
+        realHeightPixels = mRealMetrics.heightPixels;
+        hasSoftNavigationBar = mRealMetrics.heightPixels > mMetrics.heightPixels
+                || mRealMetrics.widthPixels > mMetrics.widthPixels;
+        if (hasSoftNavigationBar) {
+            navigationBarHeight = getSystemUiDimensionPixelSize(resources, "navigation_bar_height");
+            final String resName = isTablet ? "navigation_bar_height_landscape" : "navigation_bar_width";
+            navigationBarRotatedHeight = getSystemUiDimensionPixelSize(resources, resName);
+        } else {
+            navigationBarHeight = 0;
+            navigationBarRotatedHeight = 0;
+        }
+    }
+
+    /**
+     * Get the System ui dimension(pixel)
+     *
+     * @param resources {@link Resources}
+     * @param resName   dimension resource name
+     * @return pixel size
+     */
+    private static int getSystemUiDimensionPixelSize(@NonNull Resources resources, String resName) {
+        int pixelSize = 0;
+        @SuppressLint("DiscouragedApi") final int resId = resources.getIdentifier(resName, "dimen", "android");
+        if (resId > 0) {
+            pixelSize = resources.getDimensionPixelSize(resId);
+        }
+        return pixelSize;
+    }
+}
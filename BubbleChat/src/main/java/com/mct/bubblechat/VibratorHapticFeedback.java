@@ -0,0 +1,125 @@
+package com.mct.bubblechat;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Default {@link BubbleHapticFeedback}: a short vibration.<br/>
+ * The vibration effect is created once, the vibrator binder call runs on a background thread,
+ * and repeats within {@link #MIN_INTERVAL_MILLIS} are dropped (a finger oscillating on the edge of the trash).
+ */
+public final class VibratorHapticFeedback implements BubbleHapticFeedback, Handler.Callback {
+
+    /**
+     * Length of the snap vibration
+     */
+    static final long SNAP_DURATION_MILLIS = 50L;
+
+    /**
+     * Minimum time between two snap vibrations
+     */
+    static final long MIN_INTERVAL_MILLIS = 150L;
+
+    private static final int MSG_SNAP = 1;
+
+    /**
+     * Background thread shared by every instance
+     */
+    private static HandlerThread sThread;
+
+    /**
+     * Vibrator
+     */
+    private final Vibrator mVibrator;
+
+    /**
+     * VibrationEffect of a snap (API 26+), null on older devices
+     */
+    private final Object mSnapEffect;
+
+    /**
+     * Handler of the background thread
+     */
+    private final Handler mHandler;
+
+    /**
+     * Uptime of the last accepted snap (main thread)
+     */
+    private long mLastSnapTime;
+
+    public VibratorHapticFeedback(@NonNull Context context) {
+        this((Vibrator) context.getApplicationContext().getSystemService(Context.VIBRATOR_SERVICE),
+                getThread().getLooper());
+    }
+
+    /**
+     * @param vibrator vibrator, or null if the device has none
+     * @param looper   looper the vibrator calls run on
+     */
+    VibratorHapticFeedback(@Nullable Vibrator vibrator, @NonNull Looper looper) {
+        mVibrator = vibrator;
+        mSnapEffect = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? Api26Impl.createOneShot(SNAP_DURATION_MILLIS)
+                : null;
+        mHandler = new Handler(looper, this);
+        mLastSnapTime = -MIN_INTERVAL_MILLIS;
+    }
+
+    @Override
+    public void onSnap() {
+        final long now = SystemClock.uptimeMillis();
+        if (now - mLastSnapTime < MIN_INTERVAL_MILLIS || mHandler.hasMessages(MSG_SNAP)) {
+            return;
+        }
+        mLastSnapTime = now;
+        mHandler.sendEmptyMessage(MSG_SNAP);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean handleMessage(@NonNull Message msg) {
+        if (msg.what != MSG_SNAP) {
+            return false;
+        }
+        if (mVibrator == null || !mVibrator.hasVibrator()) {
+            return true;
+        }
+        if (mSnapEffect != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            Api26Impl.vibrate(mVibrator, mSnapEffect);
+        } else {
+            mVibrator.vibrate(SNAP_DURATION_MILLIS);
+        }
+        return true;
+    }
+
+    private static synchronized HandlerThread getThread() {
+        if (sThread == null) {
+            sThread = new HandlerThread("BubbleHaptics");
+            sThread.start();
+        }
+        return sThread;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private static final class Api26Impl {
+
+        static Object createOneShot(long millis) {
+            return VibrationEffect.createOneShot(millis, VibrationEffect.DEFAULT_AMPLITUDE);
+        }
+
+        static void vibrate(Vibrator vibrator, Object effect) {
+            vibrator.vibrate((VibrationEffect) effect);
+        }
+    }
+}
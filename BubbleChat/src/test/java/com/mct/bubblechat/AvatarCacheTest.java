@@ -0,0 +1,141 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class AvatarCacheTest {
+
+    private Resources mResources;
+    private AvatarCache mCache;
+    private List<Runnable> mDecodes;
+    private AvatarLoader mLoader;
+
+    @Before
+    public void setUp() {
+        mResources = ApplicationProvider.getApplicationContext().getResources();
+        mCache = new AvatarCache(4 * 1024);
+        mDecodes = new ArrayList<>();
+        mLoader = new AvatarLoader(mCache, mDecodes::add);
+    }
+
+    @Test
+    public void decodesAtBubbleSize() {
+        final Bitmap avatar = AvatarCache.decode(mResources, R.drawable.ic_trash_fixed, 48, 40);
+
+        assertEquals(48, avatar.getWidth());
+        assertEquals(40, avatar.getHeight());
+    }
+
+    @Test
+    public void inSampleSize_neverGoesBelowTarget() {
+        assertEquals(1, AvatarCache.calculateInSampleSize(100, 100, 80, 80));
+        assertEquals(4, AvatarCache.calculateInSampleSize(1024, 1024, 200, 200));
+        assertEquals(2, AvatarCache.calculateInSampleSize(1024, 512, 200, 200));
+    }
+
+    @Test
+    public void sameContact_decodedOnceAndShared() {
+        final Bitmap[] loaded = new Bitmap[3];
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, avatar -> loaded[0] = avatar);
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, avatar -> loaded[1] = avatar);
+        mLoader.load(mResources, "bob", R.drawable.ic_trash_fixed, 48, 48, avatar -> loaded[2] = avatar);
+        assertEquals(2, mDecodes.size());
+        assertNull(loaded[0]);
+
+        runDecodes();
+        nextFrame();
+        assertSame(loaded[0], loaded[1]);
+        assertNotEquals(loaded[0], loaded[2]);
+        assertEquals(48, loaded[0].getWidth());
+
+        // Cached: delivered right away without decoding
+        final Bitmap[] cached = new Bitmap[1];
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, avatar -> cached[0] = avatar);
+        assertSame(loaded[0], cached[0]);
+        assertEquals(0, mDecodes.size());
+    }
+
+    @Test
+    public void differentSize_isAnotherAvatar() {
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, avatar -> {
+        });
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 64, 64, avatar -> {
+        });
+        assertEquals(2, mDecodes.size());
+    }
+
+    @Test
+    public void cancelledRequest_isNotDelivered_butCached() {
+        final Bitmap[] loaded = new Bitmap[1];
+        final AvatarLoader.Callback callback = avatar -> loaded[0] = avatar;
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, callback);
+        mLoader.cancel(callback);
+
+        runDecodes();
+        nextFrame();
+        assertNull(loaded[0]);
+        assertEquals(48, mCache.get(AvatarCache.cacheKey("alice", R.drawable.ic_trash_fixed, 48, 48)).getWidth());
+    }
+
+    @Test
+    public void newerRequest_replacesPendingOne() {
+        final List<Bitmap> loaded = new ArrayList<>();
+        final AvatarLoader.Callback callback = loaded::add;
+        mLoader.load(mResources, "alice", R.drawable.ic_trash_fixed, 48, 48, callback);
+        mLoader.load(mResources, "bob", R.drawable.ic_trash_fixed, 48, 48, callback);
+
+        runDecodes();
+        nextFrame();
+        assertEquals(1, loaded.size());
+        assertSame(mCache.get(AvatarCache.cacheKey("bob", R.drawable.ic_trash_fixed, 48, 48)), loaded.get(0));
+    }
+
+    @Test
+    public void missingResource_endsRequestWithoutCallback() {
+        final List<Bitmap> loaded = new ArrayList<>();
+        final int missingResId = 0x7f0fffff;
+        mLoader.load(mResources, "alice", missingResId, 48, 48, loaded::add);
+
+        runDecodes();
+        nextFrame();
+        assertEquals(0, loaded.size());
+        assertNull(mCache.get(AvatarCache.cacheKey("alice", missingResId, 48, 48)));
+
+        // The failed request is not left in flight: a new load decodes again
+        mLoader.load(mResources, "alice", missingResId, 48, 48, loaded::add);
+        assertEquals(1, mDecodes.size());
+    }
+
+    private void runDecodes() {
+        for (Runnable decode : mDecodes) {
+            decode.run();
+        }
+        mDecodes.clear();
+    }
+
+    private static void nextFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(20));
+    }
+}
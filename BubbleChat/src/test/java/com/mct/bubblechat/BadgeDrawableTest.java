@@ -0,0 +1,85 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BadgeDrawableTest {
+
+    private BadgeDrawable mBadge;
+    private int mInvalidated;
+
+    @Before
+    public void setUp() {
+        mBadge = new BadgeDrawable(20, 22, 0xFFFF0000);
+        mBadge.setCallback(new Drawable.Callback() {
+            @Override
+            public void invalidateDrawable(@NonNull Drawable who) {
+                mInvalidated++;
+            }
+
+            @Override
+            public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+            }
+
+            @Override
+            public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+            }
+        });
+        mBadge.layout(160, 160);
+    }
+
+    @Test
+    public void sameCount_doesNotInvalidate() {
+        assertTrue(mBadge.setCount(3));
+        assertFalse(mBadge.setCount(3));
+        assertEquals(1, mInvalidated);
+    }
+
+    @Test
+    public void boundsDoNotDependOnCount() {
+        mBadge.setCount(1);
+        final Rect bounds = new Rect(mBadge.getBounds());
+        mBadge.setCount(BadgeDrawable.MAX_COUNT + 50);
+
+        assertEquals(bounds, mBadge.getBounds());
+        assertEquals(160, bounds.right);
+        assertEquals(0, bounds.top);
+    }
+
+    @Test
+    public void badgeCount_neverRequestsLayout() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final BubblesManager manager = new BubblesManager(context);
+        final int id = manager.addBubble(new View(context), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        final BubbleLayout bubble = (BubbleLayout) manager.getBubble(id).getParent();
+
+        for (int count = 1; count <= 20; count++) {
+            assertTrue(manager.setBadgeCount(id, count));
+            assertEquals(count, bubble.getBadgeCount());
+            assertFalse(bubble.isLayoutRequested());
+        }
+        assertFalse(manager.setBadgeCount(-1, 1));
+        manager.dispose();
+    }
+}
@@ -0,0 +1,108 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BubbleRegistryTest {
+
+    private Context mContext;
+    private BubblesManager mManager;
+    private int mRemoved;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mManager = new BubblesManager(mContext);
+    }
+
+    @Test
+    public void addBubble_returnsDistinctIds() {
+        final View first = new View(mContext);
+        final int firstId = add(first);
+        final int secondId = add(new View(mContext));
+
+        assertNotEquals(firstId, secondId);
+        assertSame(first, mManager.getBubble(firstId));
+    }
+
+    @Test
+    public void removeBubble_removesOnlyThatBubble() {
+        final int bottom = add(new View(mContext));
+        final int middle = add(new View(mContext));
+        final int top = add(new View(mContext));
+
+        assertTrue(mManager.removeBubble(middle));
+        assertFalse(mManager.removeBubble(middle));
+        assertNull(mManager.getBubble(middle));
+        assertEquals(1, mRemoved);
+
+        // The top bubble goes away, the bottom one takes its place
+        assertTrue(mManager.removeBubble(top));
+        assertFalse(mManager.isEmpty());
+        assertTrue(mManager.removeBubble(bottom));
+        assertTrue(mManager.isEmpty());
+        assertEquals(3, mRemoved);
+    }
+
+    @Test
+    public void removeAll_thenAddAgain() {
+        add(new View(mContext));
+        add(new View(mContext));
+        mManager.removeAll();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(mManager.isEmpty());
+        assertEquals(2, mRemoved);
+
+        final int id = add(new View(mContext));
+        assertFalse(mManager.isEmpty());
+        assertTrue(mManager.removeBubble(id));
+        mManager.dispose();
+    }
+
+    @Test
+    public void addBubbleWithoutView_requiresSize() {
+        final BubblesManager.Options options = new BubblesManager.Options();
+        assertThrows(IllegalArgumentException.class, () -> mManager.addBubble(options));
+
+        options.avatarResId = android.R.drawable.ic_menu_camera;
+        assertThrows(IllegalArgumentException.class, () -> mManager.addBubble(new View(mContext), options));
+        assertTrue(mManager.isEmpty());
+
+        options.floatingViewWidth = 56;
+        options.floatingViewHeight = 56;
+        final int id = mManager.addBubble(options);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(mManager.removeBubble(id));
+        mManager.dispose();
+    }
+
+    private int add(View view) {
+        final BubblesManager.Options options = new BubblesManager.Options();
+        options.bubbleRemoveListener = () -> mRemoved++;
+        final int id = mManager.addBubble(view, options);
+        shadowOf(Looper.getMainLooper()).idle();
+        return id;
+    }
+}
@@ -0,0 +1,64 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BubbleScaleAnimatorTest {
+
+    private View mView;
+    private BubbleScaleAnimator mAnimator;
+
+    @Before
+    public void setUp() {
+        mView = new View(ApplicationProvider.getApplicationContext());
+        mAnimator = new BubbleScaleAnimator(mView);
+    }
+
+    @Test
+    public void entrance_endsAtFullScale() {
+        mAnimator.playEntrance();
+        assertEquals(0f, mView.getScaleX(), 0.001f);
+
+        settle();
+        assertEquals(1f, mView.getScaleX(), 0.001f);
+        assertEquals(1f, mView.getScaleY(), 0.001f);
+    }
+
+    @Test
+    public void rapidTaps_continueFromCurrentScale() {
+        mAnimator.playPress();
+        settle();
+        assertEquals(BubbleScaleAnimator.PRESSED_SCALE, mView.getScaleX(), 0.001f);
+
+        // Interrupted release: the next press starts where the release stopped
+        mAnimator.playRelease();
+        mView.setScaleX(0.9f);
+        mAnimator.playPress();
+        assertEquals(0.9f, mView.getScaleX(), 0.001f);
+        assertEquals(0.9f, mView.getScaleY(), 0.001f);
+
+        mAnimator.playRelease();
+        settle();
+        assertEquals(1f, mView.getScaleX(), 0.001f);
+    }
+
+    private static void settle() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(500));
+    }
+}
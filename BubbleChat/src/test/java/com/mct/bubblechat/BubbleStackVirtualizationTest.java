@@ -0,0 +1,94 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BubbleStackVirtualizationTest {
+
+    private Context mContext;
+    private BubblesManager mManager;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mManager = new BubblesManager(mContext);
+        mManager.setMaxAttachedBubbles(2);
+    }
+
+    @After
+    public void tearDown() {
+        mManager.dispose();
+    }
+
+    @Test
+    public void onlyTopBubblesHoldWindows() {
+        final int first = add();
+        final int second = add();
+        final int third = add();
+        final int fourth = add();
+
+        assertFalse(isAttached(first));
+        assertFalse(isAttached(second));
+        assertTrue(isAttached(third));
+        assertTrue(isAttached(fourth));
+    }
+
+    @Test
+    public void removingTopBubble_attachesNextOne() {
+        final int first = add();
+        final int second = add();
+        final int third = add();
+
+        mManager.removeBubble(third);
+        idle();
+        assertTrue(isAttached(first));
+        assertTrue(isAttached(second));
+    }
+
+    @Test
+    public void raisingTheLimit_attachesEveryBubble() {
+        final int first = add();
+        add();
+        add();
+
+        mManager.setMaxAttachedBubbles(Integer.MAX_VALUE);
+        idle();
+        assertTrue(isAttached(first));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroLimit_isRejected() {
+        mManager.setMaxAttachedBubbles(0);
+    }
+
+    private int add() {
+        final int id = mManager.addBubble(new View(mContext), new BubblesManager.Options());
+        idle();
+        return id;
+    }
+
+    private boolean isAttached(int id) {
+        return mManager.getBubble(id).isAttachedToWindow();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
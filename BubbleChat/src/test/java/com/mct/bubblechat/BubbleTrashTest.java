@@ -0,0 +1,200 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.animation.ObjectAnimator;
+import android.content.Context;
+import android.graphics.Point;
+import android.graphics.drawable.ShapeDrawable;
+import android.os.Build;
+import android.os.Looper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowWindowManagerImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BubbleTrashTest {
+
+    private BubbleTrash mTrash;
+    private final List<Integer> mStarted = new ArrayList<>();
+    private final List<Integer> mEnded = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mTrash = new BubbleTrash(ApplicationProvider.getApplicationContext());
+        mTrash.setTrashViewListener(new TrashViewListener() {
+            @Override
+            public void onUpdateActionTrashIcon() {
+            }
+
+            @Override
+            public void onTrashAnimationStarted(int animationCode) {
+                mStarted.add(animationCode);
+            }
+
+            @Override
+            public void onTrashAnimationEnd(int animationCode) {
+                mEnded.add(animationCode);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mTrash.detachFromWindow(true);
+    }
+
+    @Test
+    public void settledOpenAnimation_sleepsUntilTargetMoves() {
+        mTrash.onTouchBubbleLayout(MotionEvent.ACTION_DOWN, 100, 100);
+        idleFor(ViewConfiguration.getLongPressTimeout() + 1000);
+        assertEquals(BubbleTrash.ANIMATION_OPEN, (int) mStarted.get(0));
+        assertTrue(mTrash.isTrashReady());
+        // Open and settled: no frame is posted while the bubble rests
+        assertFalse(hasScheduledTask());
+
+        mTrash.onTouchBubbleLayout(MotionEvent.ACTION_MOVE, 150, 150);
+        assertTrue(hasScheduledTask());
+        idleFor(1000);
+        assertFalse(hasScheduledTask());
+        // Following the target does not restart the open animation
+        assertEquals(1, mStarted.size());
+
+        mTrash.onTouchBubbleLayout(MotionEvent.ACTION_UP, 150, 150);
+        idleFor(1000);
+        assertEquals(BubbleTrash.ANIMATION_CLOSE, (int) mEnded.get(0));
+        assertFalse(hasScheduledTask());
+    }
+
+    @Test
+    public void enterScaleAnimator_isCachedPerSize() {
+        mTrash.setActionTrashIconImage(newIcon(48));
+        mTrash.updateActionTrashIcon(96, 96);
+        final ObjectAnimator large = mTrash.getEnterScaleAnimator();
+        mTrash.updateActionTrashIcon(96, 96);
+        assertSame(large, mTrash.getEnterScaleAnimator());
+
+        mTrash.updateActionTrashIcon(72, 72);
+        final ObjectAnimator medium = mTrash.getEnterScaleAnimator();
+        assertNotSame(large, medium);
+
+        // Switching back reuses the animator of that size
+        mTrash.updateActionTrashIcon(96, 96);
+        assertSame(large, mTrash.getEnterScaleAnimator());
+
+        mTrash.setScaleTrashIcon(true);
+        idleFor(1000);
+        assertEquals(2f, ((View) large.getTarget()).getScaleX(), 0.001f);
+    }
+
+    @Test
+    public void enterScaleAnimatorCache_evictsLeastRecentlyUsedSize() {
+        mTrash.setActionTrashIconImage(newIcon(48));
+        final ObjectAnimator large = enterScaleAnimatorOf(96);
+        final ObjectAnimator medium = enterScaleAnimatorOf(72);
+        enterScaleAnimatorOf(60);
+        final ObjectAnimator small = enterScaleAnimatorOf(50);
+        // Touch the oldest size, the next new size evicts the medium one instead
+        assertSame(large, enterScaleAnimatorOf(96));
+        enterScaleAnimatorOf(40);
+
+        assertSame(large, enterScaleAnimatorOf(96));
+        assertSame(small, enterScaleAnimatorOf(50));
+        assertNotSame(medium, enterScaleAnimatorOf(72));
+    }
+
+    @Test
+    public void newActionIcon_dropsCachedAnimators() {
+        mTrash.setActionTrashIconImage(newIcon(48));
+        mTrash.updateActionTrashIcon(96, 96);
+        final ObjectAnimator previous = mTrash.getEnterScaleAnimator();
+
+        mTrash.setActionTrashIconImage(newIcon(24));
+        assertNull(mTrash.getEnterScaleAnimator());
+        mTrash.updateActionTrashIcon(96, 96);
+        assertNotSame(previous, mTrash.getEnterScaleAnimator());
+    }
+
+    @Test
+    public void trashWindow_isAttachedOnlyDuringDrag() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final BubblesManager manager = new BubblesManager(context);
+        final int id = manager.addBubble(new View(context), new BubblesManager.Options());
+        idleFor(0);
+        assertEquals(0, countTrashWindows(context));
+        final WindowManager.LayoutParams params = ((BubbleLayout) manager.getBubble(id).getParent()).getViewParams();
+
+        // A tap: no window operation for the trash
+        manager.onBubbleDown();
+        assertEquals(0, countTrashWindows(context));
+        manager.onBubbleRelease();
+        idleFor(1000);
+        assertEquals(0, countTrashWindows(context));
+
+        // A drag attaches it once the bubble moved past the touch slop
+        manager.onBubbleDown();
+        params.x += 100;
+        manager.onBubbleMove(new Point(params.x, params.y));
+        assertEquals(1, countTrashWindows(context));
+
+        // The window goes away with the end of the close animation
+        manager.onBubbleRelease();
+        idleFor(1000);
+        assertEquals(0, countTrashWindows(context));
+        manager.dispose();
+    }
+
+    private static int countTrashWindows(Context context) {
+        final ShadowWindowManagerImpl windowManager = Shadow.extract(context.getSystemService(WindowManager.class));
+        int count = 0;
+        for (View view : windowManager.getViews()) {
+            if (view instanceof BubbleTrash) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ObjectAnimator enterScaleAnimatorOf(int size) {
+        mTrash.updateActionTrashIcon(size, size);
+        return mTrash.getEnterScaleAnimator();
+    }
+
+    private static ShapeDrawable newIcon(int size) {
+        final ShapeDrawable drawable = new ShapeDrawable();
+        drawable.setIntrinsicWidth(size);
+        drawable.setIntrinsicHeight(size);
+        return drawable;
+    }
+
+        private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    private static boolean hasScheduledTask() {
+        return !shadowOf(Looper.getMainLooper()).getNextScheduledTaskTime().isZero();
+    }
+}
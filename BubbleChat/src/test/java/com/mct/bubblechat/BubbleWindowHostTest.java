@@ -0,0 +1,94 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class BubbleWindowHostTest {
+
+    private static final int BUBBLE_SIZE = 56;
+
+    private Context mContext;
+    private BubbleWindowHost mHost;
+    private BubbleBaseLayout mBubble;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mHost = new BubbleWindowHost(mContext);
+        mBubble = new BubbleBaseLayout(mContext);
+        final WindowManager.LayoutParams params = new WindowManager.LayoutParams();
+        params.width = BUBBLE_SIZE;
+        params.height = BUBBLE_SIZE;
+        params.x = 10;
+        params.y = 20;
+        mBubble.setViewParams(params);
+        mBubble.setWindowHost(mHost);
+        mBubble.attachToWindow();
+        idle();
+    }
+
+    @After
+    public void tearDown() {
+        mBubble.detachFromWindow();
+        idle();
+    }
+
+    @Test
+    public void atRest_windowWrapsTheBubbles() {
+        assertWindow(10, 20, BUBBLE_SIZE, BUBBLE_SIZE);
+        assertEquals(0f, mBubble.getTranslationX(), 0f);
+        assertEquals(0f, mBubble.getTranslationY(), 0f);
+    }
+
+    @Test
+    public void whileMoving_windowFollowsTheBubbles() {
+        mHost.setMoving(true);
+        idle();
+        assertWindow(10, 20, BUBBLE_SIZE, BUBBLE_SIZE);
+
+        // The window never grows past the bounding box of the bubbles
+        moveBubble(100, 200);
+        assertWindow(100, 200, BUBBLE_SIZE, BUBBLE_SIZE);
+        assertEquals(0f, mBubble.getTranslationX(), 0f);
+        assertEquals(0f, mBubble.getTranslationY(), 0f);
+
+        mHost.setMoving(false);
+        idle();
+        assertWindow(100, 200, BUBBLE_SIZE, BUBBLE_SIZE);
+    }
+
+    private void moveBubble(int x, int y) {
+        mBubble.getViewParams().x = x;
+        mBubble.getViewParams().y = y;
+        mBubble.requestUpdateLayoutParams();
+        idle();
+    }
+
+    private void assertWindow(int x, int y, int width, int height) {
+        final WindowManager.LayoutParams params = mHost.getViewParams();
+        assertEquals(x, params.x);
+        assertEquals(y, params.y);
+        assertEquals(width, params.width);
+        assertEquals(height, params.height);
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
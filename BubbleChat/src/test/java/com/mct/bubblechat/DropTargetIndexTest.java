@@ -0,0 +1,100 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class DropTargetIndexTest {
+
+    private static final DropTargetListener NO_OP = new DropTargetListener() {
+        @Override
+        public void onBubbleEnter(@NonNull DropTarget target, int bubbleId) {
+        }
+
+        @Override
+        public void onBubbleExit(@NonNull DropTarget target, int bubbleId) {
+        }
+
+        @Override
+        public void onBubbleDrop(@NonNull DropTarget target, int bubbleId) {
+        }
+    };
+
+    private DropTargetIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new DropTargetIndex(100);
+        mIndex.setBounds(1080, 2400);
+    }
+
+    @Test
+    public void find_hitRectOverlap() {
+        final DropTarget close = new DropTarget(NO_OP).setHitRect(400, 2000, 680, 2300).setSnapPoint(540, 2150);
+        mIndex.add(close);
+
+        assertSame(close, mIndex.find(350, 1950, 450, 2050));
+        assertNull(mIndex.find(0, 0, 100, 100));
+    }
+
+    @Test
+    public void find_magnetRadius() {
+        final DropTarget share = new DropTarget(NO_OP).setSnapPoint(100, 1200).setMagnetRadius(150);
+        mIndex.add(share);
+
+        // center (200, 1250) is ~112px away
+        assertSame(share, mIndex.find(150, 1200, 250, 1300));
+        // center (350, 1250) is ~255px away
+        assertNull(mIndex.find(300, 1200, 400, 1300));
+    }
+
+    @Test
+    public void find_closestTargetWins() {
+        final DropTarget left = new DropTarget(NO_OP).setSnapPoint(300, 1000).setMagnetRadius(300);
+        final DropTarget right = new DropTarget(NO_OP).setSnapPoint(600, 1000).setMagnetRadius(300);
+        mIndex.add(left);
+        mIndex.add(right);
+
+        assertSame(right, mIndex.find(450, 950, 550, 1050));
+        assertSame(left, mIndex.find(350, 950, 450, 1050));
+    }
+
+    @Test
+    public void movedOrDisabledOrRemovedTarget() {
+        final DropTarget trash = new DropTarget(NO_OP).setHitRect(0, 0, 100, 100);
+        mIndex.add(trash);
+
+        trash.setHitRect(900, 2200, 1000, 2300);
+        assertNull(mIndex.find(0, 0, 100, 100));
+        assertSame(trash, mIndex.find(950, 2250, 1050, 2350));
+
+        trash.setEnabled(false);
+        assertNull(mIndex.find(950, 2250, 1050, 2350));
+
+        trash.setEnabled(true);
+        mIndex.remove(trash);
+        assertNull(mIndex.find(950, 2250, 1050, 2350));
+    }
+
+    @Test
+    public void outOfScreenCoordinates_fallIntoBorderCells() {
+        final DropTarget edge = new DropTarget(NO_OP).setHitRect(-50, 2350, 50, 2500);
+        mIndex.add(edge);
+
+        assertSame(edge, mIndex.find(-100, 2400, 0, 2600));
+
+        mIndex.setBounds(2400, 1080);
+        assertSame(edge, mIndex.find(-100, 2400, 0, 2600));
+    }
+}
@@ -0,0 +1,98 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class FollowerChainTest {
+
+    private static final long LAG_MILLIS = 50;
+
+    private Context mContext;
+    private FollowerChain.Link mLink;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mLink = new FollowerChain.Link(new BubbleLayout(mContext), LAG_MILLIS);
+    }
+
+    @Test
+    public void follower_lagsBehindPredecessor() {
+        mLink.record(1000, 0, 0);
+        mLink.record(1010, 100, 100);
+
+        // The newest sample is only 10ms old: keep chasing the older one
+        assertTrue(mLink.follow(1020, true));
+        assertEquals(0, mLink.getTargetX());
+        assertEquals(0, mLink.getTargetY());
+    }
+
+    @Test
+    public void follower_catchesUpOnceLagPassed() {
+        mLink.record(1000, 0, 0);
+        mLink.record(1010, 100, 100);
+        mLink.follow(1020, true);
+
+        // Predecessor at rest: duplicates are skipped and the last move is reached
+        mLink.record(1040, 100, 100);
+        assertFalse(mLink.follow(1060, true));
+        assertEquals(100, mLink.getTargetX());
+        assertEquals(100, mLink.getTargetY());
+    }
+
+    @Test
+    public void disabledLag_followsNewestSample() {
+        mLink.record(1000, 0, 0);
+        mLink.record(1010, 100, 100);
+
+        assertFalse(mLink.follow(1010, false));
+        assertEquals(100, mLink.getTargetX());
+        assertEquals(100, mLink.getTargetY());
+    }
+
+    @Test
+    public void lagLongerThanHistory_fallsBackToOldestSample() {
+        for (int i = 0; i < 20; i++) {
+            mLink.record(1000 + i, i, i);
+        }
+
+        // Only the 16 newest samples are kept
+        assertTrue(mLink.follow(1020, true));
+        assertEquals(4, mLink.getTargetX());
+    }
+
+    @Test
+    public void remove_rechainsFollower() {
+        final FollowerChain chain = new FollowerChain();
+        final FollowerChain.Link bottom = chain.addLeader(new BubbleLayout(mContext), LAG_MILLIS);
+        final FollowerChain.Link middle = chain.addLeader(new BubbleLayout(mContext), LAG_MILLIS);
+        final FollowerChain.Link top = chain.addLeader(new BubbleLayout(mContext), LAG_MILLIS);
+
+        chain.remove(middle);
+        assertSame(top, chain.getHead());
+        assertSame(bottom, top.next);
+        assertSame(top, bottom.prev);
+        assertNull(middle.prev);
+        assertNull(middle.next);
+
+        chain.remove(top);
+        assertSame(bottom, chain.getHead());
+        assertNull(bottom.prev);
+    }
+}
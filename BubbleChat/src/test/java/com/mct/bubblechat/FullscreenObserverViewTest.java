@@ -0,0 +1,70 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class FullscreenObserverViewTest {
+
+    private FullscreenObserverView mObserver;
+    private int mNotified;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mObserver = new FullscreenObserverView(context, (windowRect, visibility) -> mNotified++);
+    }
+
+    @Test
+    public void burstOfEvents_notifiesOncePerFrame() {
+        for (int i = 0; i < 10; i++) {
+            mObserver.onGlobalLayout();
+        }
+        mObserver.onSystemUiVisibilityChange(View.SYSTEM_UI_FLAG_VISIBLE);
+        nextFrame();
+
+        assertEquals(1, mNotified);
+    }
+
+    @Test
+    public void unchangedScreen_isDropped() {
+        mObserver.onGlobalLayout();
+        nextFrame();
+        mObserver.onGlobalLayout();
+        nextFrame();
+
+        assertEquals(1, mNotified);
+    }
+
+    @Test
+    public void visibilityChange_orInvalidate_notifies() {
+        mObserver.onGlobalLayout();
+        nextFrame();
+        mObserver.onSystemUiVisibilityChange(View.SYSTEM_UI_FLAG_HIDE_NAVIGATION);
+        nextFrame();
+        mObserver.invalidateScreen();
+        nextFrame();
+
+        assertEquals(3, mNotified);
+    }
+
+    private static void nextFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(20));
+    }
+}
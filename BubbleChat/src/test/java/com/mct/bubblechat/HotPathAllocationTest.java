@@ -0,0 +1,135 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Fails if the drag, fling or screen-change paths allocate in steady state.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class HotPathAllocationTest {
+
+    private static final int WARM_UP_ITERATIONS = 500;
+    private static final int MEASURED_ITERATIONS = 5_000;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private Context mContext;
+    private BubblesManager mManager;
+    private final Point mPosition = new Point();
+    private final Rect mWindowRect = new Rect();
+    private int mIteration;
+
+    @Before
+    public void setUp() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mContext = ApplicationProvider.getApplicationContext();
+        mManager = new BubblesManager(mContext);
+        mManager.addBubble(new View(mContext), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @Test
+    public void dragMove_doesNotAllocate() {
+        mManager.onBubbleDown();
+        // Open the trash so that moves also run the hit test
+        for (int i = 0; i < 10; i++) {
+            moveTo(i);
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        }
+        assertAllocationFree(() -> moveTo(mIteration++));
+    }
+
+    @Test
+    public void fling_doesNotAllocate() {
+        assertAllocationFree(() -> {
+            final int offset = mIteration++ % 64;
+            mPosition.set(offset, offset);
+            mManager.onBubbleFling(mPosition);
+        });
+    }
+
+    @Test
+    public void screenChange_doesNotAllocate() {
+        // The once-per-frame pass: limit rect of the top bubble and followers
+        mManager.addBubble(new View(mContext), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertAllocationFree(() -> {
+            mWindowRect.set(0, mIteration++ % 2 == 0 ? 0 : 24, 1080, 1920);
+            mManager.onScreenChanged(mWindowRect, View.SYSTEM_UI_FLAG_VISIBLE);
+        });
+    }
+
+    @Test
+    public void screenChangeEvents_doNotAllocate() {
+        // Layout and system UI events are only coalesced, the recomputation runs once per frame
+        final FullscreenObserverView observer = new FullscreenObserverView(mContext, (windowRect, visibility) -> {
+        });
+        assertAllocationFree(() -> {
+            observer.onGlobalLayout();
+            observer.onSystemUiVisibilityChange(mIteration++ % 2 == 0
+                    ? View.SYSTEM_UI_FLAG_VISIBLE : View.SYSTEM_UI_FLAG_HIDE_NAVIGATION);
+        });
+    }
+
+    @Test
+    public void windowPropertyWrite_doesNotAllocate() {
+        final BubbleLayout bubble = new BubbleLayout(mContext);
+        assertAllocationFree(() -> {
+            final float value = mIteration++ % 512;
+            BubbleBaseLayout.WINDOW_X.setValue(bubble, value);
+            BubbleBaseLayout.WINDOW_Y.setValue(bubble, value);
+            BubbleBaseLayout.WINDOW_X.getValue(bubble);
+        });
+    }
+
+    @Test
+    public void trashPosition_doesNotAllocate() {
+        final BubbleTrash trash = new BubbleTrash(mContext);
+        assertAllocationFree(() -> trash.getTrashPosition(mPosition));
+    }
+
+    private void moveTo(int iteration) {
+        // Stay in the top-left corner, away from the trash
+        final int offset = iteration % 64;
+        mPosition.set(offset, offset);
+        mManager.onBubbleMove(mPosition);
+    }
+
+    private void assertAllocationFree(Runnable operation) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            operation.run();
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.run();
+        }
+        final long allocated = mThreadBean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals("bytes allocated per operation", 0, allocated / MEASURED_ITERATIONS);
+    }
+}
@@ -0,0 +1,127 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class LayoutCommitterTest {
+
+    private Context mContext;
+    private LayoutCommitter mCommitter;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCommitter = LayoutCommitter.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        LayoutCommitter.reset();
+    }
+
+    @Test
+    public void repeatedRequests_commitOncePerFrame() {
+        final CountingLayout layout = new CountingLayout(mContext);
+        mCommitter.schedule(layout);
+        mCommitter.schedule(layout);
+        mCommitter.schedule(layout);
+
+        mCommitter.doFrame(0);
+        assertEquals(1, layout.commits);
+        assertFalse(layout.isLayoutDirty());
+    }
+
+    @Test
+    public void rescheduleDuringCommit_isDeferredToNextFrame() {
+        final CountingLayout layout = new CountingLayout(mContext);
+        layout.reschedules = 1;
+        mCommitter.schedule(layout);
+
+        mCommitter.doFrame(0);
+        assertEquals(1, layout.commits);
+        assertTrue(layout.isLayoutDirty());
+
+        mCommitter.doFrame(0);
+        assertEquals(2, layout.commits);
+        assertFalse(layout.isLayoutDirty());
+    }
+
+    @Test
+    public void cancelDuringCommit_skipsLayout() {
+        final CountingLayout second = new CountingLayout(mContext);
+        final CountingLayout first = new CountingLayout(mContext) {
+            @Override
+            public void updateLayoutParams() {
+                super.updateLayoutParams();
+                mCommitter.cancel(second);
+            }
+        };
+        mCommitter.schedule(first);
+        mCommitter.schedule(second);
+
+        mCommitter.doFrame(0);
+        assertEquals(1, first.commits);
+        assertEquals(0, second.commits);
+    }
+
+    @Test
+    public void bubbleMove_andHostUpdate_landInSameFrame() {
+        final BubbleWindowHost host = new BubbleWindowHost(mContext);
+        final BubbleBaseLayout bubble = new BubbleBaseLayout(mContext);
+        final WindowManager.LayoutParams params = new WindowManager.LayoutParams();
+        params.width = 56;
+        params.height = 56;
+        bubble.setViewParams(params);
+        bubble.setWindowHost(host);
+        bubble.attachToWindow();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        params.x = 100;
+        params.y = 200;
+        bubble.requestUpdateLayoutParams();
+        mCommitter.doFrame(0);
+        // The host window is committed by the same pass as the bubble
+        assertEquals(100, host.getViewParams().x);
+        assertEquals(200, host.getViewParams().y);
+        assertFalse(bubble.isLayoutDirty());
+        assertFalse(host.isLayoutDirty());
+        bubble.detachFromWindow();
+    }
+
+    private class CountingLayout extends BubbleBaseLayout {
+
+        int commits;
+        int reschedules;
+
+        CountingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void updateLayoutParams() {
+            commits++;
+            if (reschedules > 0) {
+                reschedules--;
+                mCommitter.schedule(this);
+            }
+        }
+    }
+}
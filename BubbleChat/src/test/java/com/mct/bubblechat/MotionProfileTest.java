@@ -0,0 +1,79 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.view.View;
+
+import androidx.dynamicanimation.animation.SpringForce;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class MotionProfileTest {
+
+    private Context mContext;
+    private BubblesManager mManager;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mManager = new BubblesManager(mContext);
+        mManager.addBubble(new View(mContext), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @After
+    public void tearDown() {
+        mManager.dispose();
+    }
+
+    @Test
+    public void batterySaver_degradesAnimations() {
+        assertSame(MotionProfile.FULL, mManager.getMotionProfile());
+
+        setPowerSaveMode(true);
+        assertSame(MotionProfile.DEGRADED, mManager.getMotionProfile());
+
+        setPowerSaveMode(false);
+        assertSame(MotionProfile.FULL, mManager.getMotionProfile());
+    }
+
+    @Test
+    public void override_winsOverPowerState() {
+        mManager.setMotionProfile(MotionProfile.FULL);
+        setPowerSaveMode(true);
+        assertSame(MotionProfile.FULL, mManager.getMotionProfile());
+
+        mManager.setMotionProfile(null);
+        assertSame(MotionProfile.DEGRADED, mManager.getMotionProfile());
+    }
+
+    @Test
+    public void degraded_isCriticallyDamped() {
+        assertEquals(SpringForce.DAMPING_RATIO_NO_BOUNCY,
+                MotionProfile.DEGRADED.resolveDampingRatio(SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY), 0f);
+        assertEquals(SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY,
+                MotionProfile.FULL.resolveDampingRatio(SpringForce.DAMPING_RATIO_MEDIUM_BOUNCY), 0f);
+    }
+
+    private void setPowerSaveMode(boolean enabled) {
+        final PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        shadowOf(powerManager).setIsPowerSaveMode(enabled);
+        mContext.sendBroadcast(new Intent(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
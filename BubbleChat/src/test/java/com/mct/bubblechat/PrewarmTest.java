@@ -0,0 +1,95 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class PrewarmTest {
+
+    private Context mContext;
+    private BubblesManager mManager;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mManager = new BubblesManager(mContext);
+    }
+
+    @Test
+    public void prewarmedBubble_isUsedByFirstAdd() {
+        mManager.prewarm();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        final View content = new View(mContext);
+        final int id = mManager.addBubble(content, new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(content.isAttachedToWindow());
+
+        // The spare is gone, the next bubble is built as usual
+        final View second = new View(mContext);
+        mManager.addBubble(second, new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(second.isAttachedToWindow());
+        assertTrue(mManager.removeBubble(id));
+        mManager.dispose();
+    }
+
+    @Test
+    public void disposeBeforeIdle_cancelsPrewarm() {
+        mManager.prewarm();
+        mManager.dispose();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(mManager.isEmpty());
+        assertFalse(mManager.setBadgeCount(1, 1));
+    }
+
+    @Test
+    public void firstBubbleAfterPrewarm_receivesScreenState() {
+        final int[] notified = new int[1];
+        mManager = new BubblesManager(mContext) {
+            @Override
+            public void onScreenChanged(@NonNull Rect windowRect, int visibility) {
+                super.onScreenChanged(windowRect, visibility);
+                if (!isEmpty()) {
+                    notified[0]++;
+                }
+            }
+        };
+        mManager.prewarm();
+        // The observer is attached and notifies once, before any bubble exists
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+
+        final View content = new View(mContext);
+        final BubblesManager.Options options = new BubblesManager.Options();
+        options.floatingViewWidth = 56;
+        options.floatingViewHeight = 56;
+        mManager.addBubble(content, options);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+
+        assertEquals(1, notified[0]);
+        final BubbleLayout bubble = (BubbleLayout) content.getParent();
+        assertFalse(bubble.getPositionLimitRect().isEmpty());
+        mManager.dispose();
+    }
+}
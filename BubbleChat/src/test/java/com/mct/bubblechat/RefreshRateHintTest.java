@@ -0,0 +1,81 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.view.View;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDisplay;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class RefreshRateHintTest {
+
+    private BubblesManager mManager;
+    private BubbleLayout mBubble;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        shadowOf(ShadowDisplay.getDefaultDisplay()).setRefreshRate(120f);
+        mManager = new BubblesManager(context);
+        final int id = mManager.addBubble(new View(context), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        mBubble = (BubbleLayout) mManager.getBubble(id).getParent();
+    }
+
+    @After
+    public void tearDown() {
+        mManager.dispose();
+        LayoutCommitter.reset();
+    }
+
+    @Test
+    public void highWhileDragging_noPreferenceAtRest() {
+        final WindowManager.LayoutParams params = mBubble.getViewParams();
+        assertEquals(0f, params.preferredRefreshRate, 0f);
+
+        mManager.onBubbleDown();
+        assertEquals(120f, params.preferredRefreshRate, 0f);
+
+        // A tap: nothing moves after the release
+        mManager.onBubbleRelease();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(0f, params.preferredRefreshRate, 0f);
+    }
+
+    @Test
+    public void bubbleAddedMidDrag_clearsVoteOfPreviousTop() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final WindowManager.LayoutParams params = mBubble.getViewParams();
+        mManager.onBubbleDown();
+        assertEquals(120f, params.preferredRefreshRate, 0f);
+
+        final int id = mManager.addBubble(new View(context), new BubblesManager.Options());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(0f, params.preferredRefreshRate, 0f);
+
+        // The gesture has ended: a tap on the new top bubble votes and clears again
+        final WindowManager.LayoutParams newParams = ((BubbleLayout) mManager.getBubble(id).getParent()).getViewParams();
+        assertEquals(0f, newParams.preferredRefreshRate, 0f);
+        mManager.onBubbleDown();
+        assertEquals(120f, newParams.preferredRefreshRate, 0f);
+        mManager.onBubbleRelease();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(0f, newParams.preferredRefreshRate, 0f);
+    }
+}
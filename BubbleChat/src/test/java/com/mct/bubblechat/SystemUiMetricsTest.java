@@ -0,0 +1,53 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.view.Display;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class SystemUiMetricsTest {
+
+    private Context mContext;
+    private Display mDisplay;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDisplay = ((WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+        SystemUiMetrics.invalidate();
+    }
+
+    @Test
+    public void realSize_isCachedUntilInvalidated() {
+        final int realHeight = SystemUiMetrics.get(mContext).realHeightPixels;
+
+        shadowOf(mDisplay).setRealHeight(realHeight + 100);
+        assertEquals(realHeight, SystemUiMetrics.get(mContext).realHeightPixels);
+
+        SystemUiMetrics.invalidate();
+        assertEquals(realHeight + 100, SystemUiMetrics.get(mContext).realHeightPixels);
+    }
+
+    @Test
+    public void tallerRealDisplay_hasSoftNavigationBar() {
+        final int realHeight = SystemUiMetrics.get(mContext).realHeightPixels;
+        shadowOf(mDisplay).setRealHeight(realHeight + 100);
+        SystemUiMetrics.invalidate();
+
+        assertTrue(SystemUiMetrics.get(mContext).hasSoftNavigationBar);
+    }
+}
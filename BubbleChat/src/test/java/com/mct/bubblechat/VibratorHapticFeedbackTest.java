@@ -0,0 +1,65 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.os.Vibrator;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class VibratorHapticFeedbackTest {
+
+    private Vibrator mVibrator;
+    private VibratorHapticFeedback mFeedback;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mVibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        shadowOf(mVibrator).setHasVibrator(true);
+        // Vibrate on the main looper so the test controls when it runs
+        mFeedback = new VibratorHapticFeedback(mVibrator, Looper.getMainLooper());
+    }
+
+    @Test
+    public void snap_vibrates() {
+        mFeedback.onSnap();
+        idleFor(0);
+        assertTrue(shadowOf(mVibrator).isVibrating());
+    }
+
+    @Test
+    public void repeatedSnap_withinInterval_isDropped() {
+        mFeedback.onSnap();
+        idleFor(VibratorHapticFeedback.SNAP_DURATION_MILLIS + 10);
+        assertFalse(shadowOf(mVibrator).isVibrating());
+
+        // a finger oscillating on the edge of the trash
+        mFeedback.onSnap();
+        idleFor(0);
+        assertFalse(shadowOf(mVibrator).isVibrating());
+
+        idleFor(VibratorHapticFeedback.MIN_INTERVAL_MILLIS);
+        mFeedback.onSnap();
+        idleFor(0);
+        assertTrue(shadowOf(mVibrator).isVibrating());
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+}
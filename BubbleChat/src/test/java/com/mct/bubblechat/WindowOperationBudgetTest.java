@@ -0,0 +1,333 @@
+package com.mct.bubblechat;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Scripts bubble gestures and fails if they exceed the window IPC and main-looper budgets
+ * in {@code window-op-budgets.properties}.<br/>
+ * Per-frame budgets are divided by the active frames only (frames that dispatched a message),
+ * so the time the bubbles spend at rest does not raise the allowance.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.TIRAMISU)
+public class WindowOperationBudgetTest {
+
+    private static final String BUDGET_FILE = "window-op-budgets.properties";
+    private static final long FRAME_MILLIS = 16;
+    private static final long SETTLE_MILLIS = 1_000;
+    private static final int BUBBLE_SIZE = 56;
+
+    private static Properties sBudgets;
+
+    private CountingWindowManager mCounter;
+    private Context mContext;
+    private BubblesManager mManager;
+    private BubbleLayout mTarget;
+    private long mStartTime;
+    private int mMessages;
+    private int mActiveFrames;
+    private long mLastActiveFrame;
+
+    @Before
+    public void setUp() throws IOException {
+        if (sBudgets == null) {
+            sBudgets = new Properties();
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(BUDGET_FILE)) {
+                assertNotNull(BUDGET_FILE + " is missing", in);
+                sBudgets.load(in);
+            }
+        }
+        final Context base = ApplicationProvider.getApplicationContext();
+        mCounter = new CountingWindowManager((WindowManager) base.getSystemService(Context.WINDOW_SERVICE));
+        mContext = new ContextWrapper(base) {
+            @Override
+            public Object getSystemService(String name) {
+                return Context.WINDOW_SERVICE.equals(name) ? mCounter.proxy : super.getSystemService(name);
+            }
+        };
+        mManager = new BubblesManager(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        mManager.dispose();
+        runFor(0);
+    }
+
+    @Test
+    public void addBubbles_withinBudget() {
+        startScenario();
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+        assertBudget("addBubbles");
+    }
+
+    @Test
+    public void drag_withinBudget() {
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+
+        startScenario();
+        final float x = 100, y = 100;
+        touch(MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= 30; i++) {
+            touch(MotionEvent.ACTION_MOVE, x + i * 4, y + i * 6);
+            runFor(FRAME_MILLIS);
+        }
+        touch(MotionEvent.ACTION_UP, x + 120, y + 180);
+        runFor(SETTLE_MILLIS);
+        assertBudget("drag");
+    }
+
+    @Test
+    public void uncoalescedDrag_exceedsBudget() {
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+
+        startScenario();
+        final float x = 100, y = 100;
+        touch(MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= 30; i++) {
+            touch(MotionEvent.ACTION_MOVE, x + i * 4, y + i * 6);
+            // Bypass LayoutCommitter: commit every window on each position write (x, y, follower step, ...)
+            for (View view : mCounter.addedViews) {
+                if (view instanceof BubbleLayout && ((BubbleLayout) view).isAttach()) {
+                    for (int j = 0; j < 4; j++) {
+                        ((BubbleLayout) view).updateLayoutParams();
+                    }
+                }
+            }
+            runFor(FRAME_MILLIS);
+        }
+        touch(MotionEvent.ACTION_UP, x + 120, y + 180);
+        runFor(SETTLE_MILLIS);
+        assertThrows(AssertionError.class, () -> assertBudget("drag"));
+    }
+
+    @Test
+    public void tap_withinBudget() {
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+
+        startScenario();
+        touch(MotionEvent.ACTION_DOWN, 100, 100);
+        runFor(FRAME_MILLIS);
+        touch(MotionEvent.ACTION_UP, 100, 100);
+        runFor(SETTLE_MILLIS);
+        assertBudget("tap");
+    }
+
+    @Test
+    public void fling_withinBudget() {
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+
+        startScenario();
+        final float x = 100, y = 100;
+        touch(MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= 4; i++) {
+            touch(MotionEvent.ACTION_MOVE, x + i * 40, y + i * 10);
+            runFor(FRAME_MILLIS);
+        }
+        touch(MotionEvent.ACTION_UP, x + 200, y + 50);
+        runFor(SETTLE_MILLIS);
+        assertBudget("fling");
+    }
+
+    @Test
+    public void dropOnTrash_withinBudget() {
+        addBubbles(3);
+        runFor(SETTLE_MILLIS);
+        final boolean[] removed = new boolean[1];
+        mTarget.setOnBubbleRemoveListener(() -> removed[0] = true);
+
+        startScenario();
+        final float x = 100, y = 100;
+        final int startX = mTarget.getViewParams().x;
+        final int startY = mTarget.getViewParams().y;
+        touch(MotionEvent.ACTION_DOWN, x, y);
+        // Open the trash, then place the bubble over its hit-box
+        for (int i = 1; i <= 40; i++) {
+            touch(MotionEvent.ACTION_MOVE, x + i, y + i);
+            runFor(FRAME_MILLIS);
+        }
+        final BubbleTrash trash = mCounter.findLast(BubbleTrash.class);
+        assertNotNull("trash was not attached during the drag", trash);
+        final Rect hit = new Rect();
+        trash.getWindowDrawingRect(hit);
+        final float dropX = x + hit.centerX() - BUBBLE_SIZE / 2f - startX;
+        final float dropY = y + hit.centerY() - BUBBLE_SIZE / 2f - startY;
+        for (int i = 0; i < 5; i++) {
+            touch(MotionEvent.ACTION_MOVE, dropX, dropY);
+            runFor(FRAME_MILLIS);
+        }
+        touch(MotionEvent.ACTION_UP, dropX, dropY);
+        runFor(SETTLE_MILLIS);
+        assertTrue("bubble was not dropped on the trash", removed[0]);
+        assertBudget("dropOnTrash");
+    }
+
+    /* ----------------------------------- helpers ---------------------------------------------- */
+
+    private void addBubbles(int count) {
+        for (int i = 0; i < count; i++) {
+            final BubblesManager.Options options = new BubblesManager.Options();
+            options.floatingViewWidth = BUBBLE_SIZE;
+            options.floatingViewHeight = BUBBLE_SIZE;
+            mManager.addBubble(new View(mContext), options);
+        }
+        mTarget = mCounter.findLast(BubbleLayout.class);
+    }
+
+    private void touch(int action, float rawX, float rawY) {
+        final long now = SystemClock.uptimeMillis();
+        final MotionEvent event = MotionEvent.obtain(now, now, action, rawX, rawY, 0);
+        mTarget.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private void startScenario() {
+        runFor(0);
+        mCounter.reset();
+        mMessages = 0;
+        mActiveFrames = 0;
+        mStartTime = SystemClock.uptimeMillis();
+        mLastActiveFrame = -1;
+    }
+
+    /**
+     * Run the main looper one message at a time for the given duration,
+     * counting dispatched messages and the frames they fall in.
+     */
+    private void runFor(long millis) {
+        final ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        final long end = SystemClock.uptimeMillis() + millis;
+        while (true) {
+            final Duration next = looper.getNextScheduledTaskTime();
+            if (next.isZero() || next.toMillis() > end) {
+                break;
+            }
+            looper.runOneTask();
+            mMessages++;
+            final long frame = (SystemClock.uptimeMillis() - mStartTime) / FRAME_MILLIS;
+            if (frame != mLastActiveFrame) {
+                mLastActiveFrame = frame;
+                mActiveFrames++;
+            }
+        }
+        final long remaining = end - SystemClock.uptimeMillis();
+        if (remaining > 0) {
+            looper.idleFor(Duration.ofMillis(remaining));
+        }
+    }
+
+    private void assertBudget(String scenario) {
+        final long frames = Math.max(1, mActiveFrames);
+        assertAtMost(scenario + ".addView", mCounter.addView, budget(scenario, "addView"));
+        assertAtMost(scenario + ".removeViewImmediate", mCounter.removeViewImmediate, budget(scenario, "removeViewImmediate"));
+        assertAtMost(scenario + ".updateViewLayout", mCounter.updateViewLayout,
+                budget(scenario, "updateViewLayoutPerFrame") * frames);
+        assertAtMost(scenario + ".messages", mMessages, budget(scenario, "messagesPerFrame") * frames);
+    }
+
+    private static double budget(String scenario, String key) {
+        final String value = sBudgets.getProperty(scenario + "." + key);
+        assertNotNull("no budget for " + scenario + "." + key, value);
+        return Double.parseDouble(value);
+    }
+
+    private static void assertAtMost(String name, long actual, double budget) {
+        assertTrue(name + ": " + actual + " exceeds the budget of " + (long) budget
+                + " (see " + BUDGET_FILE + ")", actual <= budget);
+    }
+
+    /**
+     * WindowManager that counts the window IPC calls and forwards them to the Robolectric shadow.
+     */
+    private static class CountingWindowManager implements InvocationHandler {
+
+        final WindowManager delegate;
+        final WindowManager proxy;
+        final List<View> addedViews = new ArrayList<>();
+        int addView;
+        int updateViewLayout;
+        int removeViewImmediate;
+
+        CountingWindowManager(WindowManager delegate) {
+            this.delegate = delegate;
+            this.proxy = (WindowManager) Proxy.newProxyInstance(WindowManager.class.getClassLoader(),
+                    new Class<?>[]{WindowManager.class}, this);
+        }
+
+        void reset() {
+            addView = 0;
+            updateViewLayout = 0;
+            removeViewImmediate = 0;
+        }
+
+        <T extends View> T findLast(Class<T> type) {
+            for (int i = addedViews.size() - 1; i >= 0; i--) {
+                if (type.isInstance(addedViews.get(i))) {
+                    return type.cast(addedViews.get(i));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "addView":
+                    addView++;
+                    addedViews.add((View) args[0]);
+                    break;
+                case "updateViewLayout":
+                    updateViewLayout++;
+                    break;
+                case "removeView":
+                case "removeViewImmediate":
+                    removeViewImmediate++;
+                    break;
+            }
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
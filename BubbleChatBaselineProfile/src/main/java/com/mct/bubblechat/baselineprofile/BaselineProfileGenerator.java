@@ -0,0 +1,111 @@
+package com.mct.bubblechat.baselineprofile;
+
+import android.util.DisplayMetrics;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Records the baseline profile of the BubbleChat library from the sample app.<br/>
+ * Journey: cold start, show the chat heads, drag the stack, fling it to the other wall
+ * and drop the top bubble on the trash.
+ * <p>
+ * Run on a rooted API 28+ device or an API 33+ emulator:
+ * {@code ./gradlew :BubbleChatBaselineProfile:connectedBenchmarkAndroidTest}, then copy the
+ * {@code com/mct/bubblechat/} rules (without {@code com/mct/bubblechat/test/}) of the
+ * {@code BaselineProfileGenerator_generate-baseline-prof.txt} output into
+ * {@code BubbleChat/src/main/baseline-prof.txt}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final String PACKAGE_NAME = "com.mct.bubblechat.test";
+    private static final long TIMEOUT_MILLIS = 5_000L;
+
+    /**
+     * Position and size of the first chat head, see ChatHeadService
+     */
+    private static final int BUBBLE_INIT_Y = 150;
+    private static final int BUBBLE_OVER_MARGIN_DP = 8;
+    private static final int BUBBLE_SIZE_DP = 80;
+
+    /**
+     * Height above the bottom of the screen where the trash icon sits
+     */
+    private static final int TRASH_OFFSET_DP = 80;
+
+    /**
+     * Move events of a drag (about 5 ms each): long enough for the trash to open
+     */
+    private static final int DRAG_STEPS = 120;
+    private static final int FLING_STEPS = 6;
+
+    @Rule
+    public BaselineProfileRule mRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        mRule.collectBaselineProfile(PACKAGE_NAME, Collections.singletonList("com.mct.bubblechat"), scope -> {
+            runJourney(scope);
+            return Unit.INSTANCE;
+        });
+    }
+
+    private static void runJourney(MacrobenchmarkScope scope) {
+        final UiDevice device = scope.getDevice();
+        // The service keeps its bubbles, start each iteration from a new process
+        scope.killProcess();
+        grantOverlayPermission(device);
+        scope.pressHome();
+        scope.startActivityAndWait();
+
+        final UiObject2 showBubble = device.wait(Until.findObject(By.res(PACKAGE_NAME, "btn_show_bubble")), TIMEOUT_MILLIS);
+        showBubble.click();
+        device.waitForIdle();
+
+        final DisplayMetrics metrics = InstrumentationRegistry.getInstrumentation().getContext()
+                .getResources().getDisplayMetrics();
+        final float density = metrics.density;
+        final int width = device.getDisplayWidth();
+        final int height = device.getDisplayHeight();
+        final int bubbleX = Math.round((BUBBLE_SIZE_DP / 2f - BUBBLE_OVER_MARGIN_DP) * density);
+        final int bubbleY = BUBBLE_INIT_Y + Math.round(BUBBLE_SIZE_DP / 2f * density);
+
+        // Drag the stack around (followers, trash open) and let it settle on the left wall
+        device.drag(bubbleX, bubbleY, width / 3, height / 2, DRAG_STEPS);
+        device.waitForIdle();
+
+        // Fling to the right wall
+        device.swipe(width / 3 - Math.round(BUBBLE_SIZE_DP / 2f * density), height / 2,
+                width - Math.round(BUBBLE_SIZE_DP * density), height / 2, FLING_STEPS);
+        device.waitForIdle();
+
+        // Drop the top bubble on the trash
+        device.drag(width - Math.round(BUBBLE_SIZE_DP / 2f * density), height / 2,
+                width / 2, height - Math.round(TRASH_OFFSET_DP * density), DRAG_STEPS);
+        device.waitForIdle();
+    }
+
+    private static void grantOverlayPermission(UiDevice device) {
+        try {
+            device.executeShellCommand("appops set " + PACKAGE_NAME + " SYSTEM_ALERT_WINDOW allow");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grant the overlay permission", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.mct.bubblechat.benchmark;
+
+import com.mct.bubblechat.core.BubbleGeometry;
+import com.mct.bubblechat.core.TrashGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-move cost of the bubble geometry.
+ * Run with {@code ./gradlew :BubbleChatBenchmark:jmh}; gc.alloc.rate.norm must stay at 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+
+    private BubbleGeometry mBubbleGeometry;
+    private int mMove;
+
+    @Setup
+    public void setUp() {
+        mBubbleGeometry = new BubbleGeometry();
+        mBubbleGeometry.setSystemUi(63, 63, 126, 126, false);
+    }
+
+    /**
+     * Screen change: system bars and limit rect.
+     */
+    @Benchmark
+    public int screenChange() {
+        final boolean isPortrait = (mMove++ & 1) == 0;
+        mBubbleGeometry.updateStatusBarHeight(false, isPortrait, false);
+        mBubbleGeometry.updateNavigationBarOffset(false, isPortrait, true, 1080, 2400, 1080, 2274);
+        mBubbleGeometry.updateLimitRect(22, 1080, 2274);
+        return mBubbleGeometry.getLimitBottom();
+    }
+
+    /**
+     * One drag move: follow position of the delete icon (the hit test is done by the app's DropTargetIndex).
+     */
+    @Benchmark
+    public void dragMove(Blackhole blackhole) {
+        final int x = mMove++ & 1023;
+        final int y = 1400 + (x & 511);
+        blackhole.consume(TrashGeometry.followPositionX(0, x, 220, 1080, -66, 132));
+        blackhole.consume(TrashGeometry.followPositionY(y, 220, 2274, 90, 300, 250, 1.0f));
+    }
+}
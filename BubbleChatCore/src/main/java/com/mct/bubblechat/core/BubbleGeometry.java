@@ -0,0 +1,242 @@
+package com.mct.bubblechat.core;
+
+/**
+ * Limit-rect math of a bubble, free of Android dependencies.<br/>
+ * Converts the system bar state into the rectangle a bubble may be placed in.
+ * All state is held in primitive fields, so updates never allocate.
+ */
+public final class BubbleGeometry {
+
+    /**
+     * status bar's height
+     */
+    private int mBaseStatusBarHeight;
+
+    /**
+     * status bar's height(landscape)
+     */
+    private int mBaseStatusBarRotatedHeight;
+
+    /**
+     * Navigation bar's height(portrait)
+     */
+    private int mBaseNavigationBarHeight;
+
+    /**
+     * Navigation bar's height
+     * Placed bottom on the screen(tablet)
+     * Or placed vertically on the screen(phone)
+     */
+    private int mBaseNavigationBarRotatedHeight;
+
+    /**
+     * If true, it's a tablet. If false, it's a phone
+     */
+    private boolean mIsTablet;
+
+    /**
+     * Current status bar's height
+     */
+    private int mStatusBarHeight;
+
+    /**
+     * Current Navigation bar's vertical size
+     */
+    private int mNavigationBarVerticalOffset;
+
+    /**
+     * Current Navigation bar's horizontal size
+     */
+    private int mNavigationBarHorizontalOffset;
+
+    /**
+     * The limit of the display position (screen edge)
+     */
+    private int mLimitLeft;
+    private int mLimitTop;
+    private int mLimitRight;
+    private int mLimitBottom;
+
+    /**
+     * Set the base system ui dimensions.
+     *
+     * @param statusBarHeight            status bar's height
+     * @param statusBarRotatedHeight     status bar's height(landscape)
+     * @param navigationBarHeight        navigation bar's height(portrait)
+     * @param navigationBarRotatedHeight navigation bar's height(landscape)
+     * @param isTablet                   true if the device is a tablet
+     */
+    public void setSystemUi(int statusBarHeight, int statusBarRotatedHeight,
+                            int navigationBarHeight, int navigationBarRotatedHeight,
+                            boolean isTablet) {
+        mBaseStatusBarHeight = statusBarHeight;
+        mBaseStatusBarRotatedHeight = statusBarRotatedHeight;
+        mBaseNavigationBarHeight = navigationBarHeight;
+        mBaseNavigationBarRotatedHeight = navigationBarRotatedHeight;
+        mIsTablet = isTablet;
+    }
+
+    /**
+     * Copy the current state of another geometry (follower bubble).
+     *
+     * @param other geometry to copy
+     */
+    public void set(BubbleGeometry other) {
+        mStatusBarHeight = other.mStatusBarHeight;
+        mNavigationBarVerticalOffset = other.mNavigationBarVerticalOffset;
+        mNavigationBarHorizontalOffset = other.mNavigationBarHorizontalOffset;
+        mLimitLeft = other.mLimitLeft;
+        mLimitTop = other.mLimitTop;
+        mLimitRight = other.mLimitRight;
+        mLimitBottom = other.mLimitBottom;
+    }
+
+    /**
+     * Update height of StatusBar.
+     *
+     * @param isHideStatusBar If true, the status bar is hidden
+     * @param isPortrait      If true, the device orientation is portrait
+     * @param hasTopCutout    If true, the display has a cutout at the top
+     */
+    public void updateStatusBarHeight(boolean isHideStatusBar, boolean isPortrait, boolean hasTopCutout) {
+        if (isHideStatusBar) {
+            // 1.(No Cutout) No StatusBar(=0)
+            // 2.(Has Cutout)StatusBar is not included in mMetrics.heightPixels (=0)
+            mStatusBarHeight = 0;
+            return;
+        }
+
+        // Has Cutout
+        if (hasTopCutout) {
+            if (isPortrait) {
+                mStatusBarHeight = 0;
+            } else {
+                mStatusBarHeight = mBaseStatusBarRotatedHeight;
+            }
+            return;
+        }
+
+        // No cutout
+        if (isPortrait) {
+            mStatusBarHeight = mBaseStatusBarHeight;
+        } else {
+            mStatusBarHeight = mBaseStatusBarRotatedHeight;
+        }
+    }
+
+    /**
+     * Update offset of NavigationBar.
+     *
+     * @param isHideNavigationBar  If true, the navigation bar is hidden
+     * @param isPortrait           If true, the device orientation is portrait
+     * @param hasSoftNavigationBar If true, the navigation bar is drawn by software
+     * @param realWidth            real display width (including system decorations)
+     * @param realHeight           real display height (including system decorations)
+     * @param screenWidth          display width
+     * @param windowBottom         bottom of the system window
+     */
+    public void updateNavigationBarOffset(boolean isHideNavigationBar, boolean isPortrait, boolean hasSoftNavigationBar,
+                                          int realWidth, int realHeight, int screenWidth, int windowBottom) {
+        final int currentNavigationBarHeight = realHeight - windowBottom;
+        final int currentNavigationBarWidth = realWidth - screenWidth;
+        final int navigationBarVerticalDiff = mBaseNavigationBarHeight - currentNavigationBarHeight;
+
+        if (!isHideNavigationBar) {
+            // auto hide navigation bar
+            // Guess based on inconsistencies with other devices
+            // 1.A navigation bar built into the device (mBaseNavigationBarHeight == 0) does not cause a difference in height depending on the system state
+            // 2.A navigation bar built into the device (!hasSoftNavigationBar) intentionally sets Base to 0, so it is inconsistent
+            if (navigationBarVerticalDiff != 0 && mBaseNavigationBarHeight == 0 ||
+                    !hasSoftNavigationBar && mBaseNavigationBarHeight != 0) {
+                if (hasSoftNavigationBar) {
+                    // 1.auto hide mode -> show mode
+                    // 2.show mode -> auto hide mode -> home
+                    mNavigationBarVerticalOffset = 0;
+                } else {
+                    // show mode -> home
+                    mNavigationBarVerticalOffset = -currentNavigationBarHeight;
+                }
+            } else {
+                // normal device
+                mNavigationBarVerticalOffset = 0;
+            }
+            mNavigationBarHorizontalOffset = 0;
+            return;
+        }
+
+        // If the portrait, is displayed at the bottom of the screen
+        if (isPortrait) {
+            // auto hide navigation bar
+            if (!hasSoftNavigationBar && mBaseNavigationBarHeight != 0) {
+                mNavigationBarVerticalOffset = 0;
+            } else {
+                mNavigationBarVerticalOffset = mBaseNavigationBarHeight;
+            }
+            mNavigationBarHorizontalOffset = 0;
+            return;
+        }
+
+        // If it is a Tablet, it will appear at the bottom of the screen.
+        // If it is Phone, it will appear on the side of the screen
+        if (mIsTablet) {
+            mNavigationBarVerticalOffset = mBaseNavigationBarRotatedHeight;
+            mNavigationBarHorizontalOffset = 0;
+        } else {
+            mNavigationBarVerticalOffset = 0;
+            // auto hide navigation bar
+            // Guess based on inconsistencies with other devices
+            // 1. A navigation bar built into the device(!hasSoftNavigationBar)
+            //      is inconsistent because Base is intentionally set to 0
+            if (!hasSoftNavigationBar && mBaseNavigationBarRotatedHeight != 0) {
+                mNavigationBarHorizontalOffset = 0;
+            } else if (hasSoftNavigationBar && mBaseNavigationBarRotatedHeight == 0) {
+                // 2.Inconsistent because for soft nav bars Base is set
+                mNavigationBarHorizontalOffset = currentNavigationBarWidth;
+            } else {
+                mNavigationBarHorizontalOffset = mBaseNavigationBarRotatedHeight;
+            }
+        }
+    }
+
+    /**
+     * Update the limit of the display position according to the screen size.
+     *
+     * @param overMargin   margin over the edge of the screen
+     * @param screenWidth  display width
+     * @param screenHeight display height
+     */
+    public void updateLimitRect(int overMargin, int screenWidth, int screenHeight) {
+        mLimitLeft = -overMargin;
+        mLimitTop = 0;
+        mLimitRight = screenWidth + overMargin + mNavigationBarHorizontalOffset;
+        mLimitBottom = screenHeight - mStatusBarHeight + mNavigationBarVerticalOffset;
+    }
+
+    public int getStatusBarHeight() {
+        return mStatusBarHeight;
+    }
+
+    public int getNavigationBarVerticalOffset() {
+        return mNavigationBarVerticalOffset;
+    }
+
+    public int getNavigationBarHorizontalOffset() {
+        return mNavigationBarHorizontalOffset;
+    }
+
+    public int getLimitLeft() {
+        return mLimitLeft;
+    }
+
+    public int getLimitTop() {
+        return mLimitTop;
+    }
+
+    public int getLimitRight() {
+        return mLimitRight;
+    }
+
+    public int getLimitBottom() {
+        return mLimitBottom;
+    }
+}
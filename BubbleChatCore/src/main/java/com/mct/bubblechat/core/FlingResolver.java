@@ -0,0 +1,135 @@
+package com.mct.bubblechat.core;
+
+/**
+ * Release velocity and fling end point of a bubble, free of Android dependencies.<br/>
+ * Positions of the drag are kept in a preallocated ring buffer; at release the velocity is
+ * estimated over the last {@link #VELOCITY_HORIZON_MILLIS} and projected analytically
+ * with the spring's parameters, so the destination is known before the first frame.
+ */
+public final class FlingResolver {
+
+    /**
+     * Number of drag samples kept
+     */
+    private static final int SAMPLE_CAPACITY = 8;
+
+    /**
+     * Only the newest samples within this time are used for the velocity
+     */
+    static final long VELOCITY_HORIZON_MILLIS = 100L;
+
+    /**
+     * Ring buffer of positions
+     */
+    private final long[] mSampleTimes = new long[SAMPLE_CAPACITY];
+    private final float[] mSampleX = new float[SAMPLE_CAPACITY];
+    private final float[] mSampleY = new float[SAMPLE_CAPACITY];
+
+    /**
+     * Index of the newest sample, and number of samples
+     */
+    private int mNewest;
+    private int mCount;
+
+    /**
+     * Velocity at release (px/s)
+     */
+    private float mVelocityX;
+    private float mVelocityY;
+
+    /**
+     * Forget the samples (touch down).
+     */
+    public void reset() {
+        mCount = 0;
+        mVelocityX = 0;
+        mVelocityY = 0;
+    }
+
+    /**
+     * Record a position of the drag.
+     *
+     * @param timeMillis event time
+     * @param x          X coordinate
+     * @param y          Y coordinate
+     */
+    public void addSample(long timeMillis, float x, float y) {
+        mNewest = (mNewest + 1) % SAMPLE_CAPACITY;
+        mSampleTimes[mNewest] = timeMillis;
+        mSampleX[mNewest] = x;
+        mSampleY[mNewest] = y;
+        mCount = Math.min(mCount + 1, SAMPLE_CAPACITY);
+    }
+
+    /**
+     * Estimate the velocity from the oldest and the newest sample within the horizon.
+     */
+    public void computeVelocity() {
+        mVelocityX = 0;
+        mVelocityY = 0;
+        if (mCount < 2) {
+            return;
+        }
+        final long newestTime = mSampleTimes[mNewest];
+        int oldest = mNewest;
+        for (int age = 1; age < mCount; age++) {
+            final int index = (mNewest - age + SAMPLE_CAPACITY) % SAMPLE_CAPACITY;
+            if (newestTime - mSampleTimes[index] > VELOCITY_HORIZON_MILLIS) {
+                break;
+            }
+            oldest = index;
+        }
+        final long duration = newestTime - mSampleTimes[oldest];
+        if (duration <= 0) {
+            return;
+        }
+        mVelocityX = (mSampleX[mNewest] - mSampleX[oldest]) * 1000f / duration;
+        mVelocityY = (mSampleY[mNewest] - mSampleY[oldest]) * 1000f / duration;
+    }
+
+    public float getVelocityX() {
+        return mVelocityX;
+    }
+
+    public float getVelocityY() {
+        return mVelocityY;
+    }
+
+    /**
+     * Where the release carries the bubble on X before the spring settles.
+     *
+     * @param x            X coordinate at release
+     * @param stiffness    spring stiffness (mass 1)
+     * @param dampingRatio spring damping ratio
+     * @return projected X coordinate
+     */
+    public int projectX(int x, float stiffness, float dampingRatio) {
+        return x + Math.round(projectDistance(mVelocityX, stiffness, dampingRatio));
+    }
+
+    /**
+     * Where the release carries the bubble on Y before the spring settles.
+     *
+     * @see #projectX(int, float, float)
+     */
+    public int projectY(int y, float stiffness, float dampingRatio) {
+        return y + Math.round(projectDistance(mVelocityY, stiffness, dampingRatio));
+    }
+
+    /**
+     * Distance covered by a velocity whose envelope decays like the spring's, e^(-z*w*t):
+     * integral of v*e^(-z*w*t) dt = v / (z*w), with z the damping ratio and w = sqrt(stiffness).
+     *
+     * @param velocity     velocity (px/s)
+     * @param stiffness    spring stiffness (mass 1)
+     * @param dampingRatio spring damping ratio
+     * @return distance (px)
+     */
+    public static float projectDistance(float velocity, float stiffness, float dampingRatio) {
+        final double decayRate = dampingRatio * Math.sqrt(stiffness);
+        if (decayRate <= 0) {
+            return 0;
+        }
+        return (float) (velocity / decayRate);
+    }
+}
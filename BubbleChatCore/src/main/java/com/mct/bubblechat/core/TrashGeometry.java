@@ -0,0 +1,141 @@
+package com.mct.bubblechat.core;
+
+/**
+ * Trash hit-box and follow-position math, free of Android dependencies.<br/>
+ * The hit-box is recomputed only when the trash moves.
+ */
+public final class TrashGeometry {
+
+    /**
+     * Horizontal area to capture target(dp)
+     */
+    private static final float TARGET_CAPTURE_HORIZONTAL_REGION = 64.0f;
+
+    /**
+     * vertical area to capture target(dp)
+     */
+    private static final float TARGET_CAPTURE_VERTICAL_REGION = 32.0f;
+
+    /**
+     * Display density
+     */
+    private float mDensity = 1.0f;
+
+    /**
+     * Center of the delete icon
+     */
+    private int mTrashX;
+    private int mTrashY;
+
+    /**
+     * Hit-box (window coordinates)
+     */
+    private int mHitLeft;
+    private int mHitTop;
+    private int mHitRight;
+    private int mHitBottom;
+
+    /**
+     * True once the position of the laid out delete icon is known
+     */
+    private boolean mHasTrashPosition;
+
+    /**
+     * Set the display density.
+     *
+     * @param density DisplayMetrics#density
+     */
+    public void setDensity(float density) {
+        mDensity = density;
+        updateHitBox();
+    }
+
+    /**
+     * Set the center of the delete icon.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    public void setTrashPosition(int x, int y) {
+        mTrashX = x;
+        mTrashY = y;
+        mHasTrashPosition = true;
+        updateHitBox();
+    }
+
+    /**
+     * @return false until {@link #setTrashPosition(int, int)} is called, the hit-box sits at (0,0) until then
+     */
+    public boolean hasTrashPosition() {
+        return mHasTrashPosition;
+    }
+
+    public int getTrashX() {
+        return mTrashX;
+    }
+
+    public int getTrashY() {
+        return mTrashY;
+    }
+
+    public int getHitLeft() {
+        return mHitLeft;
+    }
+
+    public int getHitTop() {
+        return mHitTop;
+    }
+
+    public int getHitRight() {
+        return mHitRight;
+    }
+
+    public int getHitBottom() {
+        return mHitBottom;
+    }
+
+    private void updateHitBox() {
+        mHitLeft = (int) (mTrashX - TARGET_CAPTURE_HORIZONTAL_REGION * mDensity);
+        mHitTop = (int) (mTrashY - TARGET_CAPTURE_VERTICAL_REGION * mDensity);
+        mHitRight = (int) (mTrashX + TARGET_CAPTURE_HORIZONTAL_REGION * mDensity);
+        mHitBottom = (int) (mTrashY + 2 * TARGET_CAPTURE_VERTICAL_REGION * mDensity);
+    }
+
+    /**
+     * X translation of the delete icon following the target.
+     * 0% and 100% when the target protrudes all to the left and right.
+     *
+     * @param trashViewX  X coordinate of the trash window
+     * @param targetX     X coordinate of follow target
+     * @param targetWidth width of follow target
+     * @param screenWidth display width
+     * @param limitLeft   left of the delete icon's move limit
+     * @param limitWidth  width of the delete icon's move limit
+     * @return translation X
+     */
+    public static float followPositionX(float trashViewX, float targetX, float targetWidth, float screenWidth,
+                                        int limitLeft, int limitWidth) {
+        return trashViewX + (targetX + targetWidth) / (screenWidth + targetWidth) * limitWidth + limitLeft;
+    }
+
+    /**
+     * Y translation of the delete icon following the target (negative upward direction).<br/>
+     * targetPositionYRate is 0% when the target Y coordinate is completely off screen, and 100% after half of the screen.
+     * stickyPositionY moves to the upper end with the lower end of the movement limit as the origin.
+     *
+     * @param targetY          Y coordinate of follow target
+     * @param targetHeight     height of follow target
+     * @param screenHeight     display height
+     * @param moveStickyYRange Y-axis tracking range
+     * @param limitHeight      height of the delete icon's move limit
+     * @param limitBottom      bottom of the delete icon's move limit
+     * @param interpolation    interpolated time of the open animation
+     * @return translation Y
+     */
+    public static float followPositionY(float targetY, float targetHeight, float screenHeight, float moveStickyYRange,
+                                        int limitHeight, int limitBottom, float interpolation) {
+        final float targetPositionYRate = Math.min(2 * (targetY + targetHeight) / (screenHeight + targetHeight), 1.0f);
+        final float stickyPositionY = moveStickyYRange * targetPositionYRate + limitHeight - moveStickyYRange;
+        return limitBottom - stickyPositionY * interpolation;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mct.bubblechat.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FlingResolverTest {
+
+    @Test
+    public void velocity_usesRecentSamplesOnly() {
+        final FlingResolver resolver = new FlingResolver();
+        // Slow start, then 10px every 10ms (1000 px/s) to the right
+        resolver.addSample(0, 0, 0);
+        resolver.addSample(200, 5, 0);
+        for (int i = 1; i <= 5; i++) {
+            resolver.addSample(200 + i * 10, 5 + i * 10, -i * 20);
+        }
+        resolver.computeVelocity();
+
+        assertEquals(1000f, resolver.getVelocityX(), 0.01f);
+        assertEquals(-2000f, resolver.getVelocityY(), 0.01f);
+    }
+
+    @Test
+    public void velocity_zeroWithoutMovement() {
+        final FlingResolver resolver = new FlingResolver();
+        resolver.addSample(0, 10, 10);
+        resolver.computeVelocity();
+        assertEquals(0f, resolver.getVelocityX(), 0f);
+
+        resolver.reset();
+        resolver.computeVelocity();
+        assertEquals(0f, resolver.getVelocityY(), 0f);
+    }
+
+    @Test
+    public void projection_followsSpringDecay() {
+        // z*w = 0.5 * sqrt(1600) = 20 -> 1000 px/s covers 50 px
+        assertEquals(50f, FlingResolver.projectDistance(1000f, 1600f, 0.5f), 0.001f);
+        assertEquals(-50f, FlingResolver.projectDistance(-1000f, 1600f, 0.5f), 0.001f);
+        assertEquals(0f, FlingResolver.projectDistance(1000f, 1600f, 0f), 0f);
+
+        final FlingResolver resolver = new FlingResolver();
+        resolver.addSample(0, 100, 100);
+        resolver.addSample(50, 150, 100);
+        resolver.computeVelocity();
+        assertEquals(100 + 50, resolver.projectX(100, 1600f, 0.5f));
+        assertEquals(100, resolver.projectY(100, 1600f, 0.5f));
+    }
+
+    @Test
+    public void projection_followsConfiguredSpring() {
+        final FlingResolver resolver = new FlingResolver();
+        resolver.addSample(0, 0, 0);
+        resolver.addSample(50, 50, 0);
+        resolver.computeVelocity();
+
+        // A stiffer or more damped spring stops the bubble sooner
+        assertEquals(50, resolver.projectX(0, 1600f, 0.5f));
+        assertEquals(25, resolver.projectX(0, 6400f, 0.5f));
+        assertEquals(25, resolver.projectX(0, 1600f, 1.0f));
+    }
+}
@@ -0,0 +1,72 @@
+package com.mct.bubblechat.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GeometryTest {
+
+    @Test
+    public void limitRect_portraitWithStatusBar() {
+        final BubbleGeometry geometry = new BubbleGeometry();
+        geometry.setSystemUi(60, 50, 120, 100, false);
+        geometry.updateStatusBarHeight(false, true, false);
+        geometry.updateNavigationBarOffset(false, true, true, 1080, 2400, 1080, 2280);
+        geometry.updateLimitRect(16, 1080, 2280);
+
+        assertEquals(-16, geometry.getLimitLeft());
+        assertEquals(0, geometry.getLimitTop());
+        assertEquals(1096, geometry.getLimitRight());
+        assertEquals(2280 - 60, geometry.getLimitBottom());
+    }
+
+    @Test
+    public void limitRect_landscapePhoneWithHiddenNavigationBar() {
+        final BubbleGeometry geometry = new BubbleGeometry();
+        geometry.setSystemUi(60, 50, 120, 100, false);
+        geometry.updateStatusBarHeight(false, false, false);
+        geometry.updateNavigationBarOffset(true, false, true, 2400, 1080, 2300, 1080);
+        geometry.updateLimitRect(0, 2300, 1080);
+
+        assertEquals(50, geometry.getStatusBarHeight());
+        assertEquals(100, geometry.getNavigationBarHorizontalOffset());
+        assertEquals(2400, geometry.getLimitRight());
+        assertEquals(1080 - 50, geometry.getLimitBottom());
+    }
+
+    @Test
+    public void statusBar_topCutoutInPortraitIsNotCounted() {
+        final BubbleGeometry geometry = new BubbleGeometry();
+        geometry.setSystemUi(60, 50, 0, 0, false);
+        geometry.updateStatusBarHeight(false, true, true);
+
+        assertEquals(0, geometry.getStatusBarHeight());
+    }
+
+    @Test
+    public void trashHitBox_followsPositionAndDensity() {
+        final TrashGeometry geometry = new TrashGeometry();
+        geometry.setDensity(2.0f);
+        assertFalse(geometry.hasTrashPosition());
+        geometry.setTrashPosition(500, 1800);
+
+        assertEquals(500 - 128, geometry.getHitLeft());
+        assertEquals(1800 - 64, geometry.getHitTop());
+        assertEquals(500 + 128, geometry.getHitRight());
+        assertEquals(1800 + 128, geometry.getHitBottom());
+        assertTrue(geometry.hasTrashPosition());
+    }
+
+    @Test
+    public void followPosition_isCenteredForCenteredTarget() {
+        // Target centered horizontally -> icon at the middle of its move limit
+        final float x = TrashGeometry.followPositionX(0, 490, 100, 1080, -48, 96);
+        assertEquals(0.0f, x, 0.001f);
+
+        // Target below half of the screen -> icon at the top of its sticky range
+        final float y = TrashGeometry.followPositionY(2000, 100, 2400, 40, 300, 200, 1.0f);
+        assertEquals(200 - 300, y, 0.001f);
+    }
+}
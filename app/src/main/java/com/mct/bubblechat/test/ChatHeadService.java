@@ -9,10 +9,7 @@ import android.os.Build;
 import android.os.IBinder;
 import android.provider.Settings;
 import android.util.Log;
-import android.view.View;
-import android.widget.ImageView;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mct.bubblechat.BubblesManager;
@@ -31,12 +28,21 @@ public class ChatHeadService extends Service {
         return null;
     }
 
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // build the first chat head while the service is idle, before the start command arrives
+        bubblesManager = new BubblesManager(this);
+        if (isOverlayGranted(this)) {
+            bubblesManager.prewarm();
+        }
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (isOverlayGranted(this)) {
             if (!isInit) {
                 isInit = true;
-                bubblesManager = new BubblesManager(this);
                 bubblesManager.setSafeInsetRect((Rect) intent.getParcelableExtra(EXTRA_CUTOUT_SAFE_AREA));
 
                 BubblesManager.Options options = new BubblesManager.Options();
@@ -47,11 +53,12 @@ public class ChatHeadService extends Service {
                 options.floatingViewHeight = dp2px(80);
                 options.onClickListener = v -> Log.e("ddd", "onStartCommand: Clicked");
 
-                View mView = getBubbleView(this);
-                bubblesManager.addBubble(mView, options);
+                // both bubbles show the same contact and share one avatar bitmap
+                options.avatarResId = R.drawable.ic_avatar;
+                options.avatarKey = "sample-contact";
+                bubblesManager.addBubble(options);
                 options.bubbleRemoveListener = this::stopSelf;
-                mView = getBubbleView(this);
-                bubblesManager.addBubble(mView, options);
+                bubblesManager.addBubble(options);
             }
         }
         return super.onStartCommand(intent, flags, startId);
@@ -67,15 +74,6 @@ public class ChatHeadService extends Service {
         }
     }
 
-    @NonNull
-    private ImageView getBubbleView(Context context) {
-        int padding = dp2px(8);
-        ImageView imageView = new ImageView(context);
-        imageView.setImageResource(R.drawable.ic_avatar);
-        imageView.setPadding(padding, padding, padding, padding);
-        return imageView;
-    }
-
     static int dp2px(float dpValue) {
         final float scale = Resources.getSystem().getDisplayMetrics().density;
         return (int) (dpValue * scale + 0.5f);